@@ -0,0 +1,420 @@
+package automail;
+
+import concurrent.Actor;
+import exceptions.InvalidDispatchException;
+import exceptions.InvariantViolationException;
+import exceptions.NoProgressException;
+import strategies.IMailPool;
+import strategies.InvariantChecker;
+import telemetry.TickProfiler;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * description: Runs the simulation with every Robot and active RobotTeam as an
+ *              actor. A clock actor drives the ticks: it asks the mail pool
+ *              actor to take arrivals and dispatch, sends "dispatch" to the
+ *              dispatched IRobots, then "tick" to every active IRobot. Robot
+ *              actors may answer after a random delay, like real controllers;
+ *              the clock merges their answers in IRobotComparator order, so
+ *              the result is the same as the sequential Automail.step.
+ **/
+
+public class ActorRunner {
+    /**
+     * runs the actors' turns
+     */
+    private final ExecutorService executor = Actor.newExecutor();
+
+    /**
+     * delays the answers of robot actors
+     */
+    private final ScheduledExecutorService responseDelay = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "automail-response-delay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * longest time a robot actor takes to answer, 0 to answer instantly
+     */
+    private final long maxResponseNanos;
+
+    /**
+     * true once all mail is delivered
+     */
+    private final BooleanSupplier isComplete;
+
+    /**
+     * completed with the number of ticks run, or the failure
+     */
+    private final CompletableFuture<Integer> finished = new CompletableFuture<>();
+
+    /**
+     * the clock, only mutates its state on its own turns
+     */
+    private final Actor<Runnable> clock = new Actor<Runnable>(executor) {
+        @Override
+        protected void receive(Runnable message) {message.run();}
+
+        @Override
+        protected void onFailure(Throwable failure) {finished.completeExceptionally(failure);}
+    };
+
+    /**
+     * owns the mail generator and the mail pool
+     */
+    private final Actor<Runnable> mailPoolActor = new Actor<Runnable>(executor) {
+        @Override
+        protected void receive(Runnable message) {message.run();}
+
+        @Override
+        protected void onFailure(Throwable failure) {finished.completeExceptionally(failure);}
+    };
+
+    private final MailGenerator mailGenerator;
+    private final IMailPool mailPool;
+
+    /**
+     * all robots in the building
+     */
+    private final ArrayList<Robot> robots = new ArrayList<>();
+
+    /* ----------------------------- clock state ----------------------------- */
+
+    /**
+     * the actor of every Robot and active RobotTeam
+     */
+    private final Map<IRobot, RobotActor> robotActors = new IdentityHashMap<>();
+
+    /**
+     * IRobots stepped in the current tick
+     */
+    private ArrayList<IRobot> activeIRobots = new ArrayList<>();
+
+    /**
+     * answers of the current tick, by position in activeIRobots
+     */
+    private Stepped[] answers;
+
+    /**
+     * answers the clock still waits for in the current tick
+     */
+    private int pendingAnswers;
+
+    /**
+     * time of the first tick
+     */
+    private int startTime;
+
+    /**
+     * TickProfiler start of stepping the IRobots in the current tick
+     */
+    private long robotsStart;
+
+    /**
+     * @param mailGenerator: the mail generator with all mail generated
+     * @param mailPool: the mail pool dispatching the robots
+     * @param delivery: governs the final delivery
+     * @param numRobots: number of robots in the building
+     * @param maxResponseNanos: longest time a robot actor takes to answer, 0 to answer instantly
+     * @param isComplete: true once all mail is delivered
+     */
+    public ActorRunner(MailGenerator mailGenerator, IMailPool mailPool, IMailDelivery delivery, int numRobots,
+                       long maxResponseNanos, BooleanSupplier isComplete) {
+        this.mailGenerator = mailGenerator;
+        this.mailPool = mailPool;
+        this.maxResponseNanos = maxResponseNanos;
+        this.isComplete = isComplete;
+
+        /* initial robot in returning state to mail room, as in Automail */
+        for (int i = 0; i < numRobots; i++) {
+            robots.add(RobotFactory.getInstance().createRobot(mailPool, delivery));
+        }
+        activeIRobots.addAll(robots);
+    }
+
+    /**
+     * @return all robots in the building
+     */
+    public List<Robot> getRobots() {return robots;}
+
+    /**
+     * Run ticks until all mail is delivered
+     * @return number of ticks run
+     * @throws InvalidDispatchException if the mail pool could not dispatch a robot
+     */
+    public int run() throws InvalidDispatchException {
+        startTime = Clock.Time();
+        clock.tell(this::startTick);
+        try {
+            return finished.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InvalidDispatchException) {
+                throw (InvalidDispatchException) e.getCause();
+            }
+            if (e.getCause() instanceof InvariantViolationException) {
+                throw (InvariantViolationException) e.getCause();
+            }
+            if (e.getCause() instanceof NoProgressException) {
+                throw (NoProgressException) e.getCause();
+            }
+            if (e.getCause() instanceof CancellationException) {
+                throw (CancellationException) e.getCause();
+            }
+            throw new IllegalStateException("Actor failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the actors", e);
+        } finally {
+            executor.shutdown();
+            responseDelay.shutdown();
+        }
+    }
+
+    /* ------------------------- clock actor's messages ------------------------ */
+
+    /**
+     * start a tick by letting the mail pool take arrivals and dispatch
+     */
+    private void startTick() {
+        if (isComplete.getAsBoolean()) {
+            finished.complete(Clock.Time() - startTime);
+            return;
+        }
+        mailPoolActor.tell(this::stepMailPool);
+    }
+
+    /**
+     * send "dispatch" to the IRobots the mail pool dispatched
+     * @param dispatchedIRobots: the dispatched IRobots
+     */
+    private void dispatched(ArrayList<IRobot> dispatchedIRobots) {
+        activeIRobots.addAll(dispatchedIRobots);
+        pendingAnswers = dispatchedIRobots.size();
+        if (pendingAnswers == 0) {
+            tickIRobots();
+            return;
+        }
+        for (IRobot iRobot: dispatchedIRobots) {
+            actorOf(iRobot).tell(Dispatch.DISPATCH);
+        }
+    }
+
+    /**
+     * an IRobot answered "dispatch"
+     * @param ready: the IRobot was dispatched and starts delivering when next stepped
+     */
+    private void dispatchAcknowledged(boolean ready) {
+        if (!ready) {
+            finished.completeExceptionally(new InvalidDispatchException());
+            return;
+        }
+        if (--pendingAnswers == 0) {
+            tickIRobots();
+        }
+    }
+
+    /**
+     * send "tick" to every active IRobot in IRobotComparator order
+     */
+    private void tickIRobots() {
+        robotsStart = TickProfiler.start();
+        activeIRobots.sort(IRobot.IRobotComparator);
+        answers = new Stepped[activeIRobots.size()];
+        pendingAnswers = answers.length;
+        if (pendingAnswers == 0) {
+            endTick();
+            return;
+        }
+        for (int i = 0; i < answers.length; i++) {
+            actorOf(activeIRobots.get(i)).tell(new Tick(i));
+        }
+    }
+
+    /**
+     * an IRobot answered "tick"
+     * @param answer: the answer
+     */
+    private void stepped(Stepped answer) {
+        answers[answer.position] = answer;
+        if (--pendingAnswers == 0) {
+            endTick();
+        }
+    }
+
+    /**
+     * merge the answers in IRobotComparator order, then start the next tick
+     */
+    private void endTick() {
+        ArrayList<IRobot> nextActiveIRobots = new ArrayList<>();
+        for (int i = 0; i < answers.length; i++) {
+            answers[i].stepBuffer.replay();
+            nextActiveIRobots.addAll(answers[i].activeRobots);
+            /* a team which is no longer active is broken up */
+            IRobot iRobot = activeIRobots.get(i);
+            if (iRobot instanceof RobotTeam && !answers[i].activeRobots.contains(iRobot)) {
+                robotActors.remove(iRobot);
+            }
+        }
+        activeIRobots = nextActiveIRobots;
+        answers = null;
+        TickProfiler.stop(TickProfiler.Phase.ROBOTS, robotsStart);
+        if (InvariantChecker.checkTick(Clock.Time())) {
+            long start = TickProfiler.start();
+            try {
+                mailPool.checkInvariants(robots);
+            } catch (InvariantViolationException e) {
+                finished.completeExceptionally(e);
+                return;
+            }
+            TickProfiler.stop(TickProfiler.Phase.INVARIANTS, start);
+        }
+        long start = TickProfiler.start();
+        try {
+            ProgressWatchdog.ticked(Clock.Time(), mailPool, robots);
+        } catch (NoProgressException | CancellationException e) {
+            finished.completeExceptionally(e);
+            return;
+        }
+        Clock.Tick();
+        TickProfiler.stop(TickProfiler.Phase.TELEMETRY, start);
+        startTick();
+    }
+
+    /**
+     * @param iRobot: a Robot or RobotTeam
+     * @return its actor, created when first needed
+     */
+    private RobotActor actorOf(IRobot iRobot) {
+        return robotActors.computeIfAbsent(iRobot, RobotActor::new);
+    }
+
+    /* ----------------------- mail pool actor's messages ---------------------- */
+
+    /**
+     * same as a tick's MailGenerator.step and MailPool.step in the sequential loop
+     */
+    private void stepMailPool() {
+        long start = TickProfiler.start();
+        mailGenerator.step();
+        TickProfiler.stop(TickProfiler.Phase.MAIL_GENERATION, start);
+        ArrayList<IRobot> dispatchedIRobots;
+        try {
+            start = TickProfiler.start();
+            dispatchedIRobots = mailPool.step();
+            TickProfiler.stop(TickProfiler.Phase.MAIL_POOL, start);
+        } catch (InvalidDispatchException e) {
+            finished.completeExceptionally(e);
+            return;
+        }
+        clock.tell(() -> dispatched(dispatchedIRobots));
+    }
+
+    /* ------------------------------ robot actors ----------------------------- */
+
+    /**
+     * a message to a robot actor
+     */
+    private interface RobotMessage { }
+
+    /**
+     * the mail pool dispatched the IRobot
+     */
+    private enum Dispatch implements RobotMessage { DISPATCH }
+
+    /**
+     * step the IRobot once
+     */
+    private static class Tick implements RobotMessage {
+        /**
+         * position of the IRobot in the tick's IRobotComparator order
+         */
+        private final int position;
+
+        private Tick(int position) {this.position = position;}
+    }
+
+    /**
+     * answer to "tick"
+     */
+    private static class Stepped {
+        private final int position;
+
+        /**
+         * side effects of the step, replayed by the clock
+         */
+        private final StepBuffer stepBuffer;
+
+        /**
+         * IRobots to be stepped in next tick
+         */
+        private final ArrayList<IRobot> activeRobots;
+
+        private Stepped(int position, StepBuffer stepBuffer, ArrayList<IRobot> activeRobots) {
+            this.position = position;
+            this.stepBuffer = stepBuffer;
+            this.activeRobots = activeRobots;
+        }
+    }
+
+    /**
+     * the actor of a Robot or a RobotTeam
+     */
+    private class RobotActor extends Actor<RobotMessage> {
+        private final IRobot iRobot;
+
+        private RobotActor(IRobot iRobot) {
+            super(executor);
+            this.iRobot = iRobot;
+        }
+
+        @Override
+        protected void receive(RobotMessage message) {
+            if (message == Dispatch.DISPATCH) {
+                /* MailPool.step already dispatched the IRobot, the actor only tells the clock it will go */
+                boolean ready = iRobot.canStartDelivery();
+                answer(() -> dispatchAcknowledged(ready));
+            } else {
+                StepBuffer stepBuffer = new StepBuffer();
+                ArrayList<IRobot> activeRobots;
+                stepBuffer.open();
+                try {
+                    activeRobots = iRobot.step();
+                } finally {
+                    stepBuffer.close();
+                }
+                Stepped answer = new Stepped(((Tick) message).position, stepBuffer, activeRobots);
+                answer(() -> stepped(answer));
+            }
+        }
+
+        @Override
+        protected void onFailure(Throwable failure) {finished.completeExceptionally(failure);}
+
+        /**
+         * tell the clock, after the robot's response time
+         * @param answer: the message to the clock
+         */
+        private void answer(Runnable answer) {
+            if (maxResponseNanos <= 0) {
+                clock.tell(answer);
+            } else {
+                long delay = ThreadLocalRandom.current().nextLong(maxResponseNanos);
+                responseDelay.schedule(() -> clock.tell(answer), delay, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
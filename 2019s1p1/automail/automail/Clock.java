@@ -1,5 +1,9 @@
 package automail;
 
+import telemetry.LiveMetrics;
+import telemetry.SharedTelemetry;
+import telemetry.TickSeries;
+
 /**
  * Team Number: WS12-3
  * Group member: XuLin Yang(904904), Zhuoqun Huang(908525), Renjie Meng(877396)
@@ -27,5 +31,15 @@ public class Clock {
     /**
      * Update the time of clock by 1.
      */
-    public static void Tick() {Time++;}
+    public static void Tick() {
+        Time++;
+        LiveMetrics.ticked(Time);
+        TickSeries.ticked();
+        SharedTelemetry.ticked();
+    }
+
+    /**
+     * Set the time of clock back to 0 for a new simulation.
+     */
+    static void reset() {Time = 0;}
 }
@@ -0,0 +1,179 @@
+package automail;
+
+/**
+ * description: Exact sum of non-negative doubles. Every double is a multiple
+ *              of 2^-1074, so values are added as integers in units of
+ *              2^-1074 into 32 bit limbs without any rounding. The sum is
+ *              therefore the same whatever the order of the additions, and
+ *              partial sums computed on different threads can be merged.
+ *              It is rounded to the nearest double only when read.
+ **/
+
+public class ExactSum {
+    /**
+     * bits in a limb
+     */
+    private static final int LIMB_BITS = 32;
+
+    /**
+     * value bits of a limb
+     */
+    private static final long LIMB_MASK = 0xFFFFFFFFL;
+
+    /**
+     * enough limbs for the largest double times 2^64
+     */
+    private static final int LIMBS = 72;
+
+    /**
+     * an addition adds less than 2^33 to a limb, so carries can wait this long
+     */
+    private static final int ADDS_BEFORE_CARRY = 1 << 29;
+
+    /**
+     * exponent of the unit of the sum, the smallest subnormal double
+     */
+    private static final int UNIT_EXPONENT = -1074;
+
+    /**
+     * the sum in units of 2^-1074, least significant limb first; a limb can
+     * exceed LIMB_BITS until carries are propagated
+     */
+    private final long[] limbs = new long[LIMBS];
+
+    /**
+     * additions since carries were last propagated
+     */
+    private int pendingAdds = 0;
+
+    /**
+     * Add a value
+     * @param value a finite non-negative double
+     */
+    public void add(double value) {
+        assert value >= 0 && !Double.isInfinite(value) : value;
+        long bits = Double.doubleToRawLongBits(value);
+        int biasedExponent = (int) (bits >>> 52) & 0x7FF;
+        long mantissa = bits & ((1L << 52) - 1);
+        /* value = mantissa * 2^-1074 * 2^position */
+        int position = 0;
+        if (biasedExponent != 0) {
+            mantissa |= 1L << 52;
+            position = biasedExponent - 1;
+        }
+        if (mantissa == 0) {
+            return;
+        }
+
+        int limb = position / LIMB_BITS;
+        int shift = position % LIMB_BITS;
+        long low = (mantissa & LIMB_MASK) << shift;
+        long high = (mantissa >>> LIMB_BITS) << shift;
+        limbs[limb] += low & LIMB_MASK;
+        limbs[limb + 1] += (low >>> LIMB_BITS) + (high & LIMB_MASK);
+        limbs[limb + 2] += high >>> LIMB_BITS;
+
+        if (++pendingAdds == ADDS_BEFORE_CARRY) {
+            carry();
+        }
+    }
+
+    /**
+     * Add another sum to this one, the other sum is not changed
+     * @param other the sum to add
+     */
+    public void add(ExactSum other) {
+        other.carry();
+        carry();
+        for (int i = 0; i < LIMBS; i++) {
+            limbs[i] += other.limbs[i];
+        }
+        pendingAdds = 1;
+    }
+
+    /**
+     * @return the sum rounded to the nearest double, ties to even
+     */
+    public double doubleValue() {
+        carry();
+        int top = LIMBS - 1;
+        while (top >= 0 && limbs[top] == 0) {
+            top--;
+        }
+        if (top < 0) {
+            return 0;
+        }
+        /* index of the highest set bit */
+        int highest = top * LIMB_BITS + 63 - Long.numberOfLeadingZeros(limbs[top]);
+
+        /* the 64 bits from the highest set bit down, the highest 53 are the mantissa */
+        long window = bitsFrom(highest - 63);
+        long mantissa = window >>> 11;
+        long rest = window & 0x7FF;
+        boolean roundUp = rest > 0x400 ||
+                (rest == 0x400 && (hasBitsBelow(highest - 63) || (mantissa & 1) == 1));
+        if (roundUp) {
+            mantissa++;
+            if (mantissa == 1L << 53) {
+                mantissa >>>= 1;
+                highest++;
+            }
+        }
+        return Math.scalb((double) mantissa, highest - 52 + UNIT_EXPONENT);
+    }
+
+    /**
+     * propagate the carries of all limbs
+     */
+    private void carry() {
+        if (pendingAdds == 0) {
+            return;
+        }
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long limb = limbs[i] + carry;
+            limbs[i] = limb & LIMB_MASK;
+            carry = limb >>> LIMB_BITS;
+        }
+        assert carry == 0;
+        pendingAdds = 0;
+    }
+
+    /**
+     * @param from: index of the lowest bit, may be negative
+     * @return the 64 bits of the sum starting at bit from
+     */
+    private long bitsFrom(int from) {
+        int limb = Math.floorDiv(from, LIMB_BITS);
+        int shift = Math.floorMod(from, LIMB_BITS);
+        long low = limb(limb) | (limb(limb + 1) << LIMB_BITS);
+        long high = limb(limb + 2) | (limb(limb + 3) << LIMB_BITS);
+        return shift == 0 ? low : (low >>> shift) | (high << (64 - shift));
+    }
+
+    /**
+     * @param bit: index of a bit, may be negative
+     * @return true if any bit of the sum below the given one is set
+     */
+    private boolean hasBitsBelow(int bit) {
+        if (bit <= 0) {
+            return false;
+        }
+        int limb = bit / LIMB_BITS;
+        if ((limbs[limb] & ((1L << (bit % LIMB_BITS)) - 1)) != 0) {
+            return true;
+        }
+        for (int i = 0; i < limb; i++) {
+            if (limbs[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param index: index of a limb
+     * @return the limb, 0 outside of the sum
+     */
+    private long limb(int index) {return index < 0 || index >= LIMBS ? 0 : limbs[index];}
+}
@@ -15,4 +15,12 @@ public interface IMailDelivery {
      * @param mailItem the mail item being delivered.
      */
 	void deliver(MailItem mailItem);
+
+	/**
+	 * Delivers an item at its floor, knowing who delivered it
+	 * @param mailItem the mail item being delivered.
+	 * @param robotNumber the number in the id of the delivering robot, the first robot of a team
+	 * @param teamSize the number of robots carrying the item
+	 */
+	default void deliver(MailItem mailItem, int robotNumber, int teamSize) {deliver(mailItem);}
 }
\ No newline at end of file
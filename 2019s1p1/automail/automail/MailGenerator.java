@@ -1,25 +1,54 @@
 package automail;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 import strategies.IMailPool;
 
 /**
- * This class generates the mail
+ * This class generates the mail.
+ *
+ * The legacy generator draws every attribute of every mail item from one
+ * Random, one after another. The split generator gives each attribute of
+ * each mail item its own SplittableRandom stream, derived from the seed, the
+ * attribute and the index of the item, so the mail items are generated in
+ * parallel and the same whatever the number of threads, and changing how
+ * one attribute is drawn leaves the others as they were.
  */
 public class MailGenerator {
 
+    /** Trace line of a mail item arriving at the mail pool */
+    public static final String ARRIVAL_FORMAT = "T: %3d > new addToPool [%s]%n";
+
     public final int MAIL_TO_CREATE;
     public final int MAIL_MAX_WEIGHT;
-    
-    private int mailCreated;
+
+    /** Mail items a fork join task of the split generator generates at most */
+    private static final int SPLIT_CHUNK = 4096;
+
+    /** Attributes with a stream of their own in the split generator */
+    private static final int DESTINATION = 0;
+    private static final int PRIORITY_LEVEL = 1;
+    private static final int ARRIVAL = 2;
+    private static final int WEIGHT = 3;
+    private static final int PRIORITY_ROLL = 4;
+    private static final int COUNT = 5;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
 
     private final Random random;
     /** This seed is used to make the behaviour deterministic */
-    
-    private boolean complete;
+
+    /** Seed of every attribute's streams, null for the legacy generator */
+    private final long[] attributeSeeds;
+
     private IMailPool mailPool;
 
+    /** The mail items to create, generated by generateAllMail unless given */
+    private Workload workload;
+
     private Map<Integer,ArrayList<MailItem>> allMail;
 
     /**
@@ -29,62 +58,185 @@ public class MailGenerator {
      * @param seed random seed for generating mail
      */
     public MailGenerator(int mailToCreate, int mailMaxWeight, IMailPool mailPool, HashMap<Boolean,Integer> seed){
-        if(seed.containsKey(true)){
+        this(mailToCreate, mailMaxWeight, mailPool, seed, false);
+    }
+
+    /**
+     * Constructor for mail generation
+     * @param mailToCreate roughly how many mail items to create
+     * @param mailPool where mail items go on arrival
+     * @param seed random seed for generating mail
+     * @param split use the split generator instead of the legacy one
+     */
+    public MailGenerator(int mailToCreate, int mailMaxWeight, IMailPool mailPool, HashMap<Boolean,Integer> seed,
+                         boolean split){
+        if (split) {
+            this.random = null;
+            SplittableRandom root = seed.containsKey(true) ?
+                    new SplittableRandom((long) seed.get(true)) : new SplittableRandom();
+            attributeSeeds = new long[COUNT + 1];
+            for (int attribute = 0; attribute <= COUNT; attribute++) {
+                attributeSeeds[attribute] = root.split().nextLong();
+            }
+        } else if(seed.containsKey(true)){
         	this.random = new Random((long) seed.get(true));
+        	attributeSeeds = null;
         }
         else{
         	this.random = new Random();	
+        	attributeSeeds = null;
         }
         // Vary arriving mail by +/-20%
-        MAIL_TO_CREATE = mailToCreate*4/5 + random.nextInt(mailToCreate*2/5);
+        MAIL_TO_CREATE = mailToCreate*4/5 +
+                (split ? stream(COUNT, 0) : random).nextInt(mailToCreate*2/5);
         MAIL_MAX_WEIGHT = mailMaxWeight;
         // System.out.println("Num Mail Items: "+MAIL_TO_CREATE);
-        mailCreated = 0;
-        complete = false;
         allMail = new HashMap<Integer,ArrayList<MailItem>>();
         this.mailPool = mailPool;
     }
 
     /**
-     * This function generates the MailItems to be delivered
-     * @return a new mail item that needs to be delivered
-     */
-    private MailItem generateMail(){
-    	MailItem newMailItem;
-        int dest_floor = generateDestinationFloor();
-        int priority_level = generatePriorityLevel();
-        int arrival_time = generateArrivalTime();
-        int weight = generateWeight();
-        // Check if arrival time has a priority mail (if no priority mail and rolled 0)
-        if(	(random.nextInt(6) > 0) ||  // Skew towards non priority mail (0->priority 1,2,3,4,5->normal)
-        	(allMail.containsKey(arrival_time) &&
-        	 allMail.get(arrival_time).stream().anyMatch(PriorityMailItem.class::isInstance))
-          ) {
-        	newMailItem = new MailItem(dest_floor,arrival_time,weight);      	
-        } else {
-        	newMailItem = new PriorityMailItem(dest_floor,arrival_time,weight,priority_level);
+     * Constructor for the mail of a workload generated before
+     * @param workload the mail items to create
+     * @param mailMaxWeight the heaviest a mail item may be
+     * @param mailPool where mail items go on arrival
+     */
+    public MailGenerator(Workload workload, int mailMaxWeight, IMailPool mailPool) {
+        this.random = null;
+        this.attributeSeeds = null;
+        this.workload = workload;
+        MAIL_TO_CREATE = workload.size();
+        MAIL_MAX_WEIGHT = mailMaxWeight;
+        allMail = new HashMap<Integer,ArrayList<MailItem>>();
+        this.mailPool = mailPool;
+    }
+
+    /**
+     * Generate the mail items to be delivered, without creating them
+     * @return the workload, in the order the mail items were generated
+     */
+    public Workload generateWorkload() {
+        if (attributeSeeds != null) {
+            return generateSplitWorkload();
+        }
+        int[] packed = new int[4 * MAIL_TO_CREATE];
+        /* whether a priority mail item arrives at a time */
+        boolean[] priorityArrives = new boolean[Clock.LAST_DELIVERY_TIME + 1];
+        for (int i = 0; i < MAIL_TO_CREATE; i++) {
+            int dest_floor = generateDestinationFloor(random);
+            int priority_level = generatePriorityLevel(random);
+            int arrival_time = generateArrivalTime(random);
+            int weight = generateWeight(random);
+            // Priority mail if rolled 0 and no priority mail arrives at that time yet
+            // Skew towards non priority mail (0->priority 1,2,3,4,5->normal)
+            boolean priority = random.nextInt(6) == 0 && !priorityArrives[arrival_time];
+            priorityArrives[arrival_time] |= priority;
+            packed[i] = dest_floor;
+            packed[MAIL_TO_CREATE + i] = arrival_time;
+            packed[2 * MAIL_TO_CREATE + i] = weight;
+            packed[3 * MAIL_TO_CREATE + i] = priority ? priority_level : 0;
+        }
+        return new Workload(packed);
+    }
+
+    /**
+     * Generate the mail items with the split generator, in parallel, then
+     * keep the first priority mail item arriving at a time as the legacy
+     * generator does
+     * @return the workload, in the order of the mail item indexes
+     */
+    private Workload generateSplitWorkload() {
+        int[] packed = new int[4 * MAIL_TO_CREATE];
+        ForkJoinPool.commonPool().invoke(new SplitChunk(packed, 0, MAIL_TO_CREATE));
+        boolean[] priorityArrives = new boolean[Clock.LAST_DELIVERY_TIME + 1];
+        for (int i = 0; i < MAIL_TO_CREATE; i++) {
+            int arrival_time = packed[MAIL_TO_CREATE + i];
+            if (packed[3 * MAIL_TO_CREATE + i] != 0) {
+                if (priorityArrives[arrival_time]) {
+                    packed[3 * MAIL_TO_CREATE + i] = 0;
+                }
+                priorityArrives[arrival_time] = true;
+            }
+        }
+        return new Workload(packed);
+    }
+
+    /**
+     * Generates the mail items from one index to another with the split
+     * generator, a priority level for every rolled priority mail item
+     */
+    private class SplitChunk extends RecursiveAction {
+        private final int[] packed;
+        private final int from;
+        private final int to;
+
+        private SplitChunk(int[] packed, int from, int to) {
+            this.packed = packed;
+            this.from = from;
+            this.to = to;
         }
-        return newMailItem;
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_CHUNK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SplitChunk(packed, from, middle), new SplitChunk(packed, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                packed[i] = generateDestinationFloor(stream(DESTINATION, i));
+                packed[MAIL_TO_CREATE + i] = generateArrivalTime(stream(ARRIVAL, i));
+                packed[2 * MAIL_TO_CREATE + i] = generateWeight(stream(WEIGHT, i));
+                // Skew towards non priority mail (0->priority 1,2,3,4,5->normal)
+                packed[3 * MAIL_TO_CREATE + i] = stream(PRIORITY_ROLL, i).nextInt(6) == 0 ?
+                        generatePriorityLevel(stream(PRIORITY_LEVEL, i)) : 0;
+            }
+        }
+    }
+
+    /**
+     * @param attribute which attribute
+     * @param index which mail item
+     * @return the split generator's stream of the attribute of the mail item
+     */
+    private SplittableRandom stream(int attribute, int index) {
+        return new SplittableRandom(mix64(attributeSeeds[attribute] + (index + 1) * GOLDEN_GAMMA));
+    }
+
+    /**
+     * @return the bits of z mixed, so neighbouring indexes give unrelated streams
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the mail items to create, null until generateAllMail when not given
+     */
+    public Workload getWorkload() {
+        return workload;
     }
 
     /**
      * @return a destination floor between the ranges of GROUND_FLOOR to FLOOR
      */
-    private int generateDestinationFloor(){
+    private int generateDestinationFloor(RandomGenerator random){
         return Building.LOWEST_FLOOR + random.nextInt(Building.FLOORS);
     }
 
     /**
      * @return a random priority level selected from 1 - 100
      */
-    private int generatePriorityLevel(){
+    private int generatePriorityLevel(RandomGenerator random){
         return 10*(1 + random.nextInt(10));
     }
 
     /**
      * @return a random weight
      */
-    private int generateWeight(){
+    private int generateWeight(RandomGenerator random){
     	final double mean = 200.0; // grams for normal item
     	final double stddev = 1000.0; // grams
     	double base = random.nextGaussian();
@@ -96,39 +248,23 @@ public class MailGenerator {
     /**
      * @return a random arrival time before the last delivery time
      */
-    private int generateArrivalTime(){
+    private int generateArrivalTime(RandomGenerator random){
         return 1 + random.nextInt(Clock.LAST_DELIVERY_TIME);
     }
 
     /**
      * This class initializes all mail and sets their corresponding values,
+     * creating the mail items in the order they were generated
      */
     public void generateAllMail(){
-        while(!complete){
-            MailItem newMail =  generateMail();
-            int timeToDeliver = newMail.getArrivalTime();
-            /** Check if key exists for this time **/
-            if(allMail.containsKey(timeToDeliver)){
-                /** Add to existing array */
-                allMail.get(timeToDeliver).add(newMail);
-            }
-            else{
-                /** If the key doesn't exist then set a new key along with the array of MailItems to add during
-                 * that time step.
-                 */
-                ArrayList<MailItem> newMailList = new ArrayList<MailItem>();
-                newMailList.add(newMail);
-                allMail.put(timeToDeliver,newMailList);
-            }
-            /** Mark the mail as created */
-            mailCreated++;
-
-            /** Once we have satisfied the amount of mail to create, we're done!*/
-            if(mailCreated == MAIL_TO_CREATE){
-                complete = true;
-            }
+        if (workload == null) {
+            workload = generateWorkload();
+        }
+        for (int i = 0; i < workload.size(); i++) {
+            MailItem newMail = workload.createMailItem(i);
+            /** Add to the array of MailItems to add at the time it arrives */
+            allMail.computeIfAbsent(newMail.getArrivalTime(), time -> new ArrayList<MailItem>()).add(newMail);
         }
-
     }
     
     /**
@@ -141,11 +277,20 @@ public class MailGenerator {
         if(this.allMail.containsKey(Clock.Time())){
             for(MailItem mailItem : allMail.get(Clock.Time())){
             	if (mailItem instanceof PriorityMailItem) priority = ((PriorityMailItem) mailItem);
-                System.out.printf("T: %3d > new addToPool [%s]%n", Clock.Time(), mailItem.toString());
+                Trace.printf(ARRIVAL_FORMAT, Clock.Time(), mailItem.toString());
                 mailPool.addToPool(mailItem);
             }
         }
         return priority;
     }
+
+    /**
+     * The mail items arriving at a time, in the order step() adds them to the pool
+     * @param time the time of arrival
+     * @return the arriving mail items, empty if none
+     */
+    public List<MailItem> arrivalsAt(int time) {
+        return allMail.containsKey(time) ? allMail.get(time) : Collections.emptyList();
+    }
     
 }
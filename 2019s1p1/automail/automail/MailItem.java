@@ -78,6 +78,14 @@ public class MailItem {
 		return hash;
 	}
 
+    /**
+     * Number mail items from 0 again for a new simulation
+     */
+    static void resetIds() {
+        count = 0;
+        hashMap.clear();
+    }
+
     /** Represents the destination floor to which the mail is intended to go */
     public int getDestinationFloor() {
         return destinationFloor;
@@ -0,0 +1,277 @@
+package automail;
+
+import concurrent.SpscQueue;
+import exceptions.InvalidDispatchException;
+import strategies.Automail;
+import telemetry.TickProfiler;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.function.BooleanSupplier;
+
+/**
+ * description: Runs the simulation loop with its stages on separate threads:
+ *              an arrival thread looks up and formats the arriving mail of
+ *              upcoming ticks, the calling thread adds arrivals to the pool,
+ *              dispatches and steps robots, and a trace thread formats and
+ *              writes the trace of finished ticks. Stages are connected by
+ *              bounded SPSC queues; dispatch and stepping stay on one thread
+ *              as each depends on the other within and across ticks.
+ **/
+
+public class PipelinedRunner {
+    /**
+     * ticks a stage can run ahead of the next one
+     */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * sent to the trace thread after the last tick
+     */
+    private static final TraceBatch END_OF_TRACE = new TraceBatch();
+
+    /**
+     * the mail generator with all mail generated
+     */
+    private final MailGenerator mailGenerator;
+
+    /**
+     * the automail system stepped every tick
+     */
+    private final Automail automail;
+
+    /**
+     * true once all mail is delivered
+     */
+    private final BooleanSupplier isComplete;
+
+    /**
+     * arriving mail of upcoming ticks, from the arrival thread
+     */
+    private final SpscQueue<Arrivals> arrivals = new SpscQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * trace of finished ticks, to the trace thread
+     */
+    private final SpscQueue<TraceBatch> traces = new SpscQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * the only barrier, all stages finish before results are printed after the trace
+     */
+    private final Phaser drained = new Phaser(1);
+
+    private final Stage arrivalStage = new Stage("arrival");
+    private final Stage stepStage = new Stage("dispatch+step");
+    private final Stage traceStage = new Stage("trace");
+
+    /**
+     * failure of the arrival or trace thread
+     */
+    private volatile Throwable stageFailure = null;
+
+    /**
+     * @param mailGenerator: the mail generator with all mail generated
+     * @param automail: the automail system stepped every tick
+     * @param isComplete: true once all mail is delivered
+     */
+    public PipelinedRunner(MailGenerator mailGenerator, Automail automail, BooleanSupplier isComplete) {
+        this.mailGenerator = mailGenerator;
+        this.automail = automail;
+        this.isComplete = isComplete;
+    }
+
+    /**
+     * Run ticks until all mail is delivered, the trace is completely written on return
+     * @return number of ticks run
+     * @throws InvalidDispatchException if the mail pool could not dispatch a robot
+     */
+    public int run() throws InvalidDispatchException {
+        int startTime = Clock.Time();
+        PrintStream out = Trace.getOut();
+        Thread arrivalThread = startStage(arrivalStage, () -> generateArrivals(startTime));
+        Thread traceThread = startStage(traceStage, () -> writeTraces(out));
+
+        stepStage.start();
+        try {
+            /* a failed stage thread never takes or puts again, stop instead of waiting for it */
+            while (!isComplete.getAsBoolean() && stageFailure == null) {
+                Arrivals tickArrivals = arrivals.take(this::stageFailed);
+                if (tickArrivals == null) {
+                    break;
+                }
+
+                long start = System.nanoTime();
+                TraceBatch batch = new TraceBatch();
+                Trace.collectInto(batch);
+                try {
+                    TickProfiler.startLaps();
+                    tickArrivals.addToPool(automail);
+                    TickProfiler.lap(TickProfiler.Phase.MAIL_GENERATION);
+                    /* step all components of the system */
+                    automail.step();
+                } finally {
+                    Trace.collectInto(null);
+                    stepStage.addBusy(System.nanoTime() - start);
+                    traces.put(batch, this::stageFailed);
+                }
+                Clock.Tick();
+                TickProfiler.lap(TickProfiler.Phase.TELEMETRY);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stepStage.stop();
+            /* the arrival thread may be far ahead, the trace thread drains its queue */
+            arrivalThread.interrupt();
+            while (!traces.offer(END_OF_TRACE) && traceThread.isAlive()) {
+                Thread.onSpinWait();
+            }
+            drained.arriveAndAwaitAdvance();
+        }
+
+        if (stageFailure != null) {
+            throw new IllegalStateException("Pipeline stage failed", stageFailure);
+        }
+        return Clock.Time() - startTime;
+    }
+
+    /**
+     * @return true once the arrival or trace thread has failed
+     */
+    private boolean stageFailed() {return stageFailure != null;}
+
+    /**
+     * Print how busy each stage was
+     * @param out: the stream to print to
+     */
+    public void printStageReport(PrintStream out) {
+        for (Stage stage: new Stage[]{arrivalStage, stepStage, traceStage}) {
+            out.printf("  %-14s occupancy %5.1f%%%n", stage.name, 100.0 * stage.occupancy());
+        }
+    }
+
+    /**
+     * arrival thread: look up and format the arrivals of every tick from startTime on
+     * @param startTime: the first tick
+     * @throws InterruptedException once the simulation is complete
+     */
+    private void generateArrivals(int startTime) throws InterruptedException {
+        for (int time = startTime; !Thread.currentThread().isInterrupted(); time++) {
+            long start = System.nanoTime();
+            List<MailItem> mailItems = mailGenerator.arrivalsAt(time);
+            Arrivals tickArrivals = Arrivals.NONE;
+            if (!mailItems.isEmpty()) {
+                String[] lines = new String[mailItems.size()];
+                for (int i = 0; i < lines.length; i++) {
+                    lines[i] = String.format(MailGenerator.ARRIVAL_FORMAT, time, mailItems.get(i).toString());
+                }
+                tickArrivals = new Arrivals(mailItems, lines);
+            }
+            arrivalStage.addBusy(System.nanoTime() - start);
+            arrivals.put(tickArrivals);
+        }
+    }
+
+    /**
+     * trace thread: write the trace of every tick until the end of trace
+     * @param out: the stream trace is written to
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void writeTraces(PrintStream out) throws InterruptedException {
+        TraceBatch batch;
+        while ((batch = traces.take()) != END_OF_TRACE) {
+            long start = System.nanoTime();
+            batch.writeTo(out);
+            long nanos = System.nanoTime() - start;
+            traceStage.addBusy(nanos);
+            TickProfiler.record(TickProfiler.Phase.TRACE_OUTPUT, nanos);
+        }
+        out.flush();
+    }
+
+    /**
+     * @param stage: the stage run on the thread
+     * @param body: what the thread does
+     * @return the started thread
+     */
+    private Thread startStage(Stage stage, StageBody body) {
+        drained.register();
+        Thread thread = new Thread(() -> {
+            stage.start();
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                /* stopped */
+            } catch (Throwable t) {
+                stageFailure = t;
+            } finally {
+                stage.stop();
+                drained.arriveAndDeregister();
+            }
+        }, "automail-" + stage.name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * what a stage thread does
+     */
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * mail items arriving in one tick with their trace lines
+     */
+    private static class Arrivals {
+        /**
+         * a tick without arrivals
+         */
+        private static final Arrivals NONE = new Arrivals(Collections.emptyList(), new String[0]);
+
+        private final List<MailItem> mailItems;
+        private final String[] lines;
+
+        private Arrivals(List<MailItem> mailItems, String[] lines) {
+            this.mailItems = mailItems;
+            this.lines = lines;
+        }
+
+        /**
+         * same as MailGenerator.step(): trace each item, then add it to the pool
+         * @param automail: the automail system with the pool
+         */
+        private void addToPool(Automail automail) {
+            for (int i = 0; i < lines.length; i++) {
+                Trace.print(lines[i]);
+                automail.getMailPool().addToPool(mailItems.get(i));
+            }
+        }
+    }
+
+    /**
+     * wall time and busy time of a stage
+     */
+    private static class Stage {
+        private final String name;
+        private volatile long startNanos;
+        private volatile long stopNanos;
+        private volatile long busyNanos;
+
+        private Stage(String name) {this.name = name;}
+
+        private void start() {startNanos = System.nanoTime();}
+
+        private void stop() {stopNanos = System.nanoTime();}
+
+        /* only called by the stage's own thread */
+        private void addBusy(long nanos) {busyNanos += nanos;}
+
+        private long wallNanos() {return stopNanos - startNanos;}
+
+        private double occupancy() {return wallNanos() == 0 ? 0 : (double) busyNanos / wallNanos();}
+    }
+}
@@ -0,0 +1,143 @@
+package automail;
+
+import exceptions.NoProgressException;
+import strategies.IMailPool;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * description: Ends a run which stopped making progress, with a
+ *              NoProgressException holding a snapshot of the pool and the
+ *              robots. A delivery, a robot changing state or a mail item
+ *              added to the pool is progress. The run is ended when a
+ *              window of ticks after the last mail arrival passes without
+ *              any, or when it reaches a horizon. Progress only sets a flag,
+ *              which the end of the tick reads and clears, so a tick costs a
+ *              few comparisons and allocates nothing. Robots stepped in
+ *              parallel may set the flag at the same time; they all set it to
+ *              true and the tick ends after joining them, so that is safe.
+ *              Another thread may also cancel the run, which ends it at the
+ *              end of the current tick with a CancellationException.
+ **/
+
+public class ProgressWatchdog {
+    /**
+     * robots listed in a snapshot, the rest are only counted
+     */
+    private static final int SNAPSHOT_ROBOTS = 20;
+
+    private static boolean progressed = false;
+
+    /**
+     * ticks without progress before ending the run, 0 for no limit
+     */
+    private static int window = 0;
+
+    /**
+     * tick to end the run at, 0 for no limit
+     */
+    private static int horizon = 0;
+
+    private static int lastProgress = 0;
+
+    /**
+     * set by another thread to end the run, not cleared by reset
+     */
+    private static volatile boolean cancelled = false;
+
+    /**
+     * Set the limits for a new run
+     * @param window: ticks without progress before ending the run, 0 for no limit
+     * @param horizon: tick to end the run at, 0 for no limit
+     */
+    public static void reset(int window, int horizon) {
+        ProgressWatchdog.window = window;
+        ProgressWatchdog.horizon = horizon;
+        progressed = false;
+        lastProgress = Clock.Time();
+    }
+
+    /**
+     * Cancel the run, or clear a cancel before the next run, from any thread
+     * @param cancelled: true to end the run at the end of the current tick
+     */
+    public static void setCancelled(boolean cancelled) {ProgressWatchdog.cancelled = cancelled;}
+
+    /**
+     * @param floors: floors of the building
+     * @return a window longer than any wait between two progresses of a
+     *         working run, a team taking 3 ticks a floor to the top floor
+     */
+    public static int defaultWindow(int floors) {return 4 * floors + 20;}
+
+    /**
+     * @param lastDeliveryTime: time of the last mail arrival
+     * @param mailItems: mail items of the run
+     * @param floors: floors of the building
+     * @return a horizon which a working run can not reach, every mail item
+     *         delivered on its own by a team to the top floor and back
+     */
+    public static int defaultHorizon(int lastDeliveryTime, int mailItems, int floors) {
+        return (int) Math.min(Integer.MAX_VALUE, lastDeliveryTime + (long) mailItems * (6L * floors + 6) + 100);
+    }
+
+    /**
+     * Note progress in this tick
+     */
+    public static void progressed() {progressed = true;}
+
+    /**
+     * Check the tick which is ending
+     * @param tick: the tick
+     * @param mailPool: the mail pool, for the snapshot
+     * @param fleet: all robots in the building, for the snapshot
+     * @throws NoProgressException if the run is to be ended
+     * @throws CancellationException if the run was cancelled
+     */
+    public static void ticked(int tick, IMailPool mailPool, List<Robot> fleet) {
+        if (cancelled) {
+            throw new CancellationException(String.format("T: %d: run cancelled", tick));
+        }
+        if (progressed) {
+            progressed = false;
+            lastProgress = tick;
+        }
+        if (horizon > 0 && tick >= horizon) {
+            throw new NoProgressException(snapshot(
+                    String.format("T: %d: reached the horizon of %d ticks", tick, horizon), mailPool, fleet));
+        }
+        /* no mail arrives after LAST_DELIVERY_TIME, until then robots may wait for it */
+        int quietTicks = tick - Math.max(lastProgress, Clock.LAST_DELIVERY_TIME);
+        if (window > 0 && quietTicks >= window) {
+            throw new NoProgressException(snapshot(
+                    String.format("T: %d: no progress since T: %d", tick, lastProgress), mailPool, fleet));
+        }
+    }
+
+    /**
+     * @return the reason, the pool and the robots, only built when a run is ended
+     */
+    private static String snapshot(String reason, IMailPool mailPool, List<Robot> fleet) {
+        StringBuilder snapshot = new StringBuilder(reason).append(System.lineSeparator());
+        snapshot.append(mailPool.describe()).append(System.lineSeparator());
+        int[] inState = new int[RobotState.values().length];
+        for (Robot robot: fleet) {
+            inState[robot.getRobotState().ordinal()]++;
+        }
+        snapshot.append("Robots:");
+        for (RobotState robotState: RobotState.values()) {
+            snapshot.append(' ').append(robotState).append(' ').append(inState[robotState.ordinal()]);
+        }
+        for (Robot robot: fleet.subList(0, Math.min(SNAPSHOT_ROBOTS, fleet.size()))) {
+            snapshot.append(System.lineSeparator()).append(String.format("  %s %s %s on floor %d carrying %s",
+                    robot.getId(), robot.getRobotState(), robot.getTeamState(), robot.getFloor(),
+                    robot.listMailItems()));
+        }
+        if (fleet.size() > SNAPSHOT_ROBOTS) {
+            snapshot.append(System.lineSeparator()).append(String.format("  and %d more",
+                    fleet.size() - SNAPSHOT_ROBOTS));
+        }
+        return snapshot.toString();
+    }
+}
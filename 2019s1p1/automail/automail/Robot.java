@@ -3,6 +3,9 @@ package automail;
 import exceptions.InvalidAddItemException;
 import exceptions.ItemTooHeavyException;
 import strategies.IMailPool;
+import telemetry.LiveMetrics;
+import telemetry.RobotStateChangeEvent;
+import telemetry.RobotStats;
 
 import java.util.*;
 
@@ -60,6 +63,11 @@ public class Robot implements IRobot {
      */
     private MailItem tube = null;
 
+    /**
+     * utilization and travel counters of the robot
+     */
+    private final RobotStats stats;
+
     /**
      * Initiates the robot's location at the start to be at the mailroom
      * also set it to be waiting for mail.
@@ -74,6 +82,8 @@ public class Robot implements IRobot {
         this.delivery = delivery;
         this.mailPool = mailPool;
         this.receivedDispatch = false;
+        stats = new RobotStats(robotState, teamState, Clock.Time());
+        LiveMetrics.robotStateChanged(null, robotState);
     }
 
     /**
@@ -85,7 +95,10 @@ public class Robot implements IRobot {
      * Signal robot to start delivery
      */
     @Override
-    public void startDelivery() {receivedDispatch = false;}
+    public void startDelivery() {
+        receivedDispatch = false;
+        stats.startedTrip(tube != null);
+    }
 
     /**
      * This is called on every time step, making robot act if called.
@@ -98,6 +111,7 @@ public class Robot implements IRobot {
      * @param destination the floor towards which the robot is moving
      */
     public void moveTowards(int destination) {
+        stats.travelledFloor(deliveryItem != null);
         if(currentFloor < destination){
             currentFloor++;
         } else {
@@ -119,11 +133,15 @@ public class Robot implements IRobot {
         /* Cannot be holding mail in tube but not mail in hand! */
     	assert(!(deliveryItem == null && tube != null));
     	if (robotState != nextState) {
-            System.out.printf("T: %3d > %7s changed from %s to %s%n", Clock.Time(), getIdTube(), robotState, nextState);
+            stats.changeState(nextState, Clock.Time());
+            RobotStateChangeEvent.commit(Clock.Time(), id, robotState, nextState, currentFloor);
+            LiveMetrics.robotStateChanged(robotState, nextState);
+            ProgressWatchdog.progressed();
+            Trace.printf("T: %3d > %7s changed from %s to %s%n", Clock.Time(), getIdTube(), robotState, nextState);
     	}
     	robotState = nextState;
     	if(nextState == RobotState.DELIVERING){
-            System.out.printf("T: %3d > %7s-> [%s]%n", Clock.Time(), getIdTube(), deliveryItem.toString());
+            Trace.printf("T: %3d > %7s-> [%s]%n", Clock.Time(), getIdTube(), deliveryItem.toString());
     	}
     }
 
@@ -225,7 +243,10 @@ public class Robot implements IRobot {
      */
     @Override
     public void deliver() {
-	    delivery.deliver(deliveryItem);
+        MailItem deliveredItem = deliveryItem;
+        /* SINGLE, DOUBLE or TRIPLE, taken now as the team may break up before a buffered delivery runs */
+        int teamSize = teamState.ordinal() + 1;
+	    StepBuffer.run(() -> delivery.deliver(deliveredItem, hashCode(), teamSize));
 	    deliveryItem = null;
     }
 
@@ -271,7 +292,7 @@ public class Robot implements IRobot {
      * The robot got to base, now waiting for order
      */
     @Override
-    public void registerWaiting() {mailPool.registerWaiting(this);}
+    public void registerWaiting() {StepBuffer.run(() -> mailPool.registerWaiting(this));}
 
     /**
      * robot the way to hash the robot
@@ -284,6 +305,14 @@ public class Robot implements IRobot {
         return hash;
     }
 
+    /**
+     * Number robots from 0 again for a new simulation
+     */
+    static void resetIds() {
+        count = 0;
+        hashMap.clear();
+    }
+
     /**
      * @return the Robot's id
      * */
@@ -315,7 +344,20 @@ public class Robot implements IRobot {
      * @param teamState The TeamState to set to
      */
     @Override
-    public void changeTeamState(TeamState teamState) {this.teamState = teamState;}
+    public void changeTeamState(TeamState teamState) {
+        stats.changeTeamState(teamState, Clock.Time());
+        this.teamState = teamState;
+    }
+
+    /**
+     * The robot's team did not move this tick, as teams move slower
+     */
+    void waitForTeam() {stats.lostTickToTeam();}
+
+    /**
+     * @return utilization and travel counters of the robot
+     */
+    public RobotStats getStats() {return stats;}
 
     /**
      * Checks if the Robot can start delivery (State can be changed to Delivery if this is true)
@@ -2,7 +2,9 @@ package automail;
 
 import exceptions.InvalidAddItemException;
 import exceptions.ItemTooHeavyException;
+import exceptions.SimulationAbortedException;
 import strategies.IMailPool;
+import telemetry.TeamFormationEvent;
 
 import java.util.List;
 
@@ -50,18 +52,21 @@ public class RobotFactory {
 
             /* add all mailItemsToDelivers to this robot*/
             while (!mailItemsToDelivers.isEmpty()) {
+                MailItem mailItem = mailItemsToDelivers.remove(0);
                 try {
-                    robot.addMailItem(mailItemsToDelivers.remove(0));
+                    robot.addMailItem(mailItem);
                 } catch (InvalidAddItemException | ItemTooHeavyException e) {
-                    e.printStackTrace();
-                    System.exit(1);
+                    throw new SimulationAbortedException(robot.getId() + " can not carry " + mailItem, e);
                 }
             }
 
+            TeamFormationEvent.commit(Clock.Time(), robot);
             return robot;
          /* if there are more than one team members, create an instance of Robot Team, then return it.*/
         } else {
-            return new RobotTeam(teamRobotMember, mailItemsToDelivers);
+            RobotTeam robotTeam = new RobotTeam(teamRobotMember, mailItemsToDelivers);
+            TeamFormationEvent.commit(Clock.Time(), robotTeam);
+            return robotTeam;
         }
     }
 }
@@ -62,7 +62,7 @@ public enum RobotState implements IRobotState {
             if (iRobot.getFloor() == Building.MAILROOM_LOCATION) {
                 iRobot.registerWaiting();
                 iRobot.changeState(RobotState.WAITING);
-                // Waiting for order from now on
+                // Waiting for order from now on, parked until MailPool dispatches it
                 return new ArrayList<>();
             } else {
                 iRobot.moveTowards(Building.MAILROOM_LOCATION);
@@ -76,15 +76,20 @@ public enum RobotState implements IRobotState {
     WAITING {
         /**
          * Takes an IRobot and check whether this IRobot could start to delivery.
+         * A waiting IRobot is only stepped in the tick the MailPool dispatched it,
+         * if it still can not start it is parked until the MailPool wakes it again.
          * @param iRobot The robot to act on
+         * @return the IRobot itself once delivering, otherwise no IRobot
          */
         @Override
         public ArrayList<IRobot> step(IRobot iRobot) {
             if (iRobot.canStartDelivery()) {
                 iRobot.startDelivery();
                 iRobot.changeState(RobotState.DELIVERING);
+                return iRobot.availableIRobots();
             }
-            return iRobot.availableIRobots();
+            // Parked outside the active list, MailPool.step() wakes it on dispatch
+            return new ArrayList<>();
         }
     };
 
@@ -3,6 +3,7 @@ package automail;
 import exceptions.InvalidAddItemException;
 import exceptions.InvalidDispatchException;
 import exceptions.ItemTooHeavyException;
+import exceptions.SimulationAbortedException;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -109,7 +110,7 @@ public class RobotTeam implements IRobot {
      */
     public void deliver() {
         /* indicate robots are working in a team */
-        System.out.printf("T: %3d >*  [%s] at floor(%3d) %s is now reporting deliver [%s]%n",
+        Trace.printf("T: %3d >*  [%s] at floor(%3d) %s is now reporting deliver [%s]%n",
                 Clock.Time(), getId(), robots.get(0).getFloor(),
                 robots.get(0).getId(), robots.get(0).getCurrentMailItem().toString());
 
@@ -123,52 +124,33 @@ public class RobotTeam implements IRobot {
      * */
     private int getTeamSize() {return robots.size();}
 
-    /**
-     * check whether there is a mail item that can't be delivered individually
-     * in unloaded mail item list
-     * @param unloadedMailItems: item to be loaded to robots
-     * @return true if there is a mail item that can't be delivered individually
-     * */
-    private boolean hasHeavyItem(List<MailItem> unloadedMailItems) {
-        for (MailItem mailItem: unloadedMailItems) {
-            if (mailItem.getWeight() > TeamState.SINGLE.validWeight()) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * get first unloaded mail item can't be delivered individually
      * @param unloadedMailItems: item to be loaded to robots
-     * @return first mail item in unloaded List can't be delivered individually
+     * @return first mail item in unloaded List can't be delivered individually,
+     *         null if there is none
      * */
     private MailItem getHeavyMailItem(List<MailItem> unloadedMailItems) {
-        assert hasHeavyItem(unloadedMailItems);
-
         for (MailItem mailItem: unloadedMailItems) {
             if (mailItem.getWeight() > TeamState.SINGLE.validWeight()) {
                 return mailItem;
             }
         }
-
-        /* for completeness */
         return null;
     }
 
     /**
      * load the heavy item to all robots in the team
+     * @param heavyMailItem: the item which can't be delivered individually
      * @param unloadedMailItems: item to be loaded to robots
      */
-    private void loadHeavyItem(List<MailItem> unloadedMailItems) {
+    private void loadHeavyItem(MailItem heavyMailItem, List<MailItem> unloadedMailItems) {
         /* add heavy item to all robots' hand */
-        MailItem heavyMailItem = getHeavyMailItem(unloadedMailItems);
         for (IRobot robot: robots) {
             try {
                 robot.addMailItem(heavyMailItem);
             } catch (InvalidAddItemException | ItemTooHeavyException e) {
-                e.printStackTrace();
-                System.exit(1);
+                throw new SimulationAbortedException(robot.getId() + " can not carry " + heavyMailItem, e);
             }
         }
         /* heavy item loaded */
@@ -211,8 +193,9 @@ public class RobotTeam implements IRobot {
         }
 
         /* heavy item for team */
-        if (hasHeavyItem(unloadedMailItems)) {
-            loadHeavyItem(unloadedMailItems);
+        MailItem heavyMailItem = getHeavyMailItem(unloadedMailItems);
+        if (heavyMailItem != null) {
+            loadHeavyItem(heavyMailItem, unloadedMailItems);
         }
         loadLightItems(unloadedMailItems);
         /* all items should be loaded */
@@ -229,6 +212,7 @@ public class RobotTeam implements IRobot {
         robotStep = (robotStep + 1) % SLOW_FACTOR;
         /* Only move if it's a cycle */
         if (robotStep != 0) {
+            robots.forEach(Robot::waitForTeam);
             return;
         }
 
@@ -292,9 +276,7 @@ public class RobotTeam implements IRobot {
         try {
             return robots.get(0).getFloor();
         } catch (IndexOutOfBoundsException e) {
-            System.err.println("Robot team still empty");
-            System.exit(1);
-            return 1;
+            throw new SimulationAbortedException("Robot team still empty", e);
         }
     }
 
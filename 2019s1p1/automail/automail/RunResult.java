@@ -0,0 +1,128 @@
+package automail;
+
+import exceptions.InvalidAddItemException;
+import exceptions.InvalidConfigurationException;
+import exceptions.InvalidDispatchException;
+import exceptions.InvariantViolationException;
+import exceptions.ItemTooHeavyException;
+import exceptions.MailAlreadyDeliveredException;
+import exceptions.NoProgressException;
+import exceptions.NotEnoughRobotException;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * description: How a run of Simulation.run ended: completed with its final
+ *              time and score, or failed with the failure and the kind of
+ *              it. A failed run ends only itself, so a batch of runs in one
+ *              JVM records it and goes on with the next.
+ **/
+
+public class RunResult {
+    public enum Status {
+        COMPLETED,
+        /** a property was missing, not a number or out of range, the run did not start */
+        INVALID_CONFIG,
+        /** the robots can not carry the heaviest mail */
+        NOT_ENOUGH_ROBOTS,
+        /** the mail pool dispatched a robot which could not be dispatched */
+        INVALID_DISPATCH,
+        /** a mail item was delivered twice */
+        DUPLICATE_DELIVERY,
+        /** a mail item could not be loaded to a robot */
+        INVALID_LOAD,
+        /** the InvariantChecker found the state inconsistent */
+        INVARIANT_VIOLATION,
+        /** the ProgressWatchdog found the run stopped making progress */
+        NO_PROGRESS,
+        /** the run was cancelled from another thread */
+        CANCELLED,
+        /** anything else thrown by the simulation */
+        FAILED
+    }
+
+    private final Status status;
+    private final int time;
+    private final int delivered;
+    private final double score;
+    private final Throwable failure;
+
+    private RunResult(Status status, int time, int delivered, double score, Throwable failure) {
+        this.status = status;
+        this.time = time;
+        this.delivered = delivered;
+        this.score = score;
+        this.failure = failure;
+    }
+
+    /**
+     * @param time: final delivery time
+     * @param delivered: mail items delivered
+     * @param score: final score
+     * @return the result of a completed run
+     */
+    static RunResult completed(int time, int delivered, double score) {
+        return new RunResult(Status.COMPLETED, time, delivered, score, null);
+    }
+
+    /**
+     * @param failure: what ended the run
+     * @param time: time it ended at
+     * @param delivered: mail items delivered until then
+     * @param score: score until then
+     * @return the result of a failed run, its status from the first known failure in the causes
+     */
+    static RunResult failed(Throwable failure, int time, int delivered, double score) {
+        return new RunResult(statusOf(failure), time, delivered, score, failure);
+    }
+
+    private static Status statusOf(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InvalidConfigurationException) {
+                return Status.INVALID_CONFIG;
+            } else if (cause instanceof NotEnoughRobotException) {
+                return Status.NOT_ENOUGH_ROBOTS;
+            } else if (cause instanceof InvalidDispatchException) {
+                return Status.INVALID_DISPATCH;
+            } else if (cause instanceof MailAlreadyDeliveredException) {
+                return Status.DUPLICATE_DELIVERY;
+            } else if (cause instanceof InvalidAddItemException || cause instanceof ItemTooHeavyException) {
+                return Status.INVALID_LOAD;
+            } else if (cause instanceof InvariantViolationException) {
+                return Status.INVARIANT_VIOLATION;
+            } else if (cause instanceof NoProgressException) {
+                return Status.NO_PROGRESS;
+            } else if (cause instanceof CancellationException) {
+                return Status.CANCELLED;
+            }
+        }
+        return Status.FAILED;
+    }
+
+    public Status getStatus() {return status;}
+
+    /**
+     * @return true if all mail was delivered
+     */
+    public boolean isCompleted() {return status == Status.COMPLETED;}
+
+    /**
+     * @return time the run ended at, the final delivery time when completed
+     */
+    public int getTime() {return time;}
+
+    public int getDelivered() {return delivered;}
+
+    public double getScore() {return score;}
+
+    /**
+     * @return what ended a failed run, null when completed
+     */
+    public Throwable getFailure() {return failure;}
+
+    @Override
+    public String toString() {
+        return String.format("%s at T: %d, %d delivered, score %.2f%s", status, time, delivered, score,
+                failure == null ? "" : ": " + failure);
+    }
+}
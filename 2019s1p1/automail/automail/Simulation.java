@@ -2,15 +2,30 @@ package automail;
 
 import exceptions.*;
 import strategies.Automail;
+import strategies.InvariantChecker;
 import strategies.MailPool;
 import strategies.SelectMailItemToDeliverPlan;
 import strategies.SelectRobotToDeliverPlan;
+import telemetry.DecisionCorpus;
+import telemetry.DeliveryEvent;
+import telemetry.DeliveryLatency;
+import telemetry.DeliveryRecordWriter;
+import telemetry.FleetReport;
+import telemetry.LiveMetrics;
+import telemetry.MetricsServer;
+import telemetry.SharedTelemetry;
+import telemetry.TickProfiler;
+import telemetry.TickSeries;
 
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.function.BooleanSupplier;
 
 /**
  * This class simulates the behaviour of AutoMail
@@ -23,10 +38,48 @@ public class Simulation {
     
 
     private static ArrayList<MailItem> MAIL_DELIVERED;
-    private static double total_score = 0;
+    /** Exact, so the score does not depend on the order deliveries are summed in */
+    private static ExactSum total_score = new ExactSum();
+    /** Latency by priority class and floor, null unless Latency_Report is set */
+    private static DeliveryLatency deliveryLatency = null;
+    /** A record per delivery, null unless Delivery_Record_File is set */
+    private static DeliveryRecordWriter deliveryRecords = null;
 
     public static void main(String[] args)
 			throws IOException, NotEnoughRobotException {
+    	String filename = "./automail.properties";
+
+    	/* The first argument is treated as place holder and second argument as the real argument */
+    	if (args.length == 2) {
+    		filename = args[1];
+    		/* Reset the args to an empty arg */
+    		args = new String[]{};
+		}
+
+		Properties automailProperties = loadProperties(filename);
+		/* Read the first argument and save it as a seed if it exists - overrides property */
+		if (args.length != 0) {
+			automailProperties.setProperty("Seed", String.valueOf(Integer.parseInt(args[0])));
+		}
+		RunResult result = run(automailProperties);
+		switch (result.getStatus()) {
+			case COMPLETED:
+				break;
+			case NOT_ENOUGH_ROBOTS:
+				throw (NotEnoughRobotException) result.getFailure();
+			case INVALID_DISPATCH:
+				result.getFailure().printStackTrace();
+				break;
+			default:
+				result.getFailure().printStackTrace();
+				System.exit(1);
+		}
+	}
+
+	/**
+	 * @return the default properties of a simulation
+	 */
+	private static Properties defaultProperties() {
         Properties automailProperties = new Properties();
 		// Default properties
     	automailProperties.setProperty("Robots", "Standard");
@@ -35,15 +88,49 @@ public class Simulation {
     	automailProperties.setProperty("Fragile", "false");
     	automailProperties.setProperty("Mail_to_Create", "80");
     	automailProperties.setProperty("Last_Delivery_Time", "100");
+    	automailProperties.setProperty("Step_Parallelism", "1");
+    	automailProperties.setProperty("Pipelined", "false");
+    	automailProperties.setProperty("Tick_Report", "false");
+    	automailProperties.setProperty("Actors", "false");
+    	automailProperties.setProperty("Actor_Response_Nanos", "0");
+    	automailProperties.setProperty("Tick_Profile", "false");
+    	automailProperties.setProperty("Tick_Profile_File", "");
+    	automailProperties.setProperty("Latency_Report", "false");
+    	automailProperties.setProperty("Fleet_Report", "false");
+    	automailProperties.setProperty("Metrics_Port", "");
+    	automailProperties.setProperty("Tick_Series_File", "");
+    	automailProperties.setProperty("Delivery_Record_File", "");
+    	automailProperties.setProperty("Shared_Telemetry_File", "");
+    	automailProperties.setProperty("Decision_Corpus_File", "");
+    	automailProperties.setProperty("Invariant_Check", "");
+    	automailProperties.setProperty("Invariant_Sample_Every", "100");
+    	automailProperties.setProperty("Watchdog_Window", "");
+    	automailProperties.setProperty("Watchdog_Horizon", "");
+    	automailProperties.setProperty("Mail_Generator", "legacy");
+    	automailProperties.setProperty("Workload_Cache", "false");
+    	automailProperties.setProperty("Workload_Cache_Dir", "");
+    	return automailProperties;
+	}
 
-    	String filename = "./automail.properties";
-
-    	/* The first argument is treated as place holder and second argument as the real argument */
-    	if (args.length == 2) {
-    		filename = args[1];
-    		/* Reset the args to an empty arg */
-    		args = new String[]{};
+	/**
+	 * @param properties the simulation properties
+	 * @return the properties a run uses: the given ones on top of the default properties
+	 */
+	public static Properties effectiveProperties(Properties properties) {
+		Properties automailProperties = defaultProperties();
+		for (String name: properties.stringPropertyNames()) {
+			automailProperties.setProperty(name, properties.getProperty(name));
 		}
+		return automailProperties;
+	}
+
+	/**
+	 * @param filename the properties file
+	 * @return the properties in the file on top of the default properties
+	 * @throws IOException if the file can not be read
+	 */
+	public static Properties loadProperties(String filename) throws IOException {
+		Properties automailProperties = defaultProperties();
 
     	// Read properties
 		FileReader inStream = null;
@@ -55,28 +142,169 @@ public class Simulation {
                 inStream.close();
             }
 		}
+		return automailProperties;
+	}
+
+	/**
+	 * Set the clock back to 0, number mail items and robots from 0 again and
+	 * clear the score, for a new simulation in the same JVM. run() does this
+	 * itself, tools which drive the components of a simulation call it.
+	 */
+	public static void resetState() {
+		Clock.reset();
+		MailItem.resetIds();
+		Robot.resetIds();
+		total_score = new ExactSum();
+		ProgressWatchdog.reset(0, 0);
+	}
+
+	/**
+	 * Run a simulation to completion and print its results, the trace goes to
+	 * Trace.getOut(). The simulation state is reset first, so runs can follow
+	 * each other in one JVM.
+	 * A run which fails ends with a failed RunResult instead of ending the
+	 * JVM, so the next run can follow.
+	 * @param properties the simulation properties, missing ones take the defaults
+	 * @return how the run ended
+	 */
+	public static RunResult run(Properties properties) {
+		/* start from a clean state */
+		resetState();
+		try {
+			return runFrom(effectiveProperties(properties));
+		} catch (RuntimeException e) {
+			/* an invalid configuration, or a failure setting up the run before it started */
+			return RunResult.failed(e, Clock.Time(), 0, 0);
+		}
+	}
+
+	/**
+	 * @param properties the simulation properties
+	 * @param name the property
+	 * @param min the least valid value
+	 * @param max the greatest valid value
+	 * @return the value of the property
+	 * @throws InvalidConfigurationException if it is missing, not an integer or out of range
+	 */
+	private static long longProperty(Properties properties, String name, long min, long max) {
+		String value = properties.getProperty(name);
+		if (value == null) {
+			throw new InvalidConfigurationException(name + " is missing");
+		}
+		long parsed;
+		try {
+			parsed = Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new InvalidConfigurationException(name + " is not an integer: " + value, e);
+		}
+		if (parsed < min || parsed > max) {
+			throw new InvalidConfigurationException(
+					String.format("%s must be from %d to %d: %d", name, min, max, parsed));
+		}
+		return parsed;
+	}
+
+	/**
+	 * @param properties the simulation properties
+	 * @param name the property
+	 * @param min the least valid value
+	 * @return the value of the property
+	 * @throws InvalidConfigurationException if it is missing, not an int or less than min
+	 */
+	private static int intProperty(Properties properties, String name, int min) {
+		return (int) longProperty(properties, name, min, Integer.MAX_VALUE);
+	}
 
+	/**
+	 * Read and check the properties, generate the mail and run
+	 * @param automailProperties the properties with the defaults filled in
+	 * @return how the run ended
+	 * @throws InvalidConfigurationException if a property is invalid
+	 */
+	private static RunResult runFrom(Properties automailProperties) {
 		//Seed
 		String seedProp = automailProperties.getProperty("Seed");
 		// Floors
-		Building.FLOORS = Integer.parseInt(automailProperties.getProperty("Floors"));
-        System.out.printf("Floors: %5d%n", Building.FLOORS);
+		Building.FLOORS = intProperty(automailProperties, "Floors", 1);
+        Trace.printf("Floors: %5d%n", Building.FLOORS);
         // Fragile
         boolean fragile = Boolean.parseBoolean(automailProperties.getProperty("Fragile"));
-        System.out.printf("Fragile: %5b%n", fragile);
+        Trace.printf("Fragile: %5b%n", fragile);
 		// Mail_to_Create
-		MAIL_TO_CREATE = Integer.parseInt(automailProperties.getProperty("Mail_to_Create"));
-        System.out.printf("Mail_to_Create: %5d%n", MAIL_TO_CREATE);
+		/* the generator draws from 4/5 to 6/5 of it, which needs at least 3 */
+		MAIL_TO_CREATE = intProperty(automailProperties, "Mail_to_Create", 3);
+        Trace.printf("Mail_to_Create: %5d%n", MAIL_TO_CREATE);
         // Mail_to_Create
-     	MAIL_MAX_WEIGHT = Integer.parseInt(automailProperties.getProperty("Mail_Max_Weight"));
-        System.out.printf("Mail_Max_Weight: %5d%n", MAIL_MAX_WEIGHT);
+     	MAIL_MAX_WEIGHT = intProperty(automailProperties, "Mail_Max_Weight", 1);
+        Trace.printf("Mail_Max_Weight: %5d%n", MAIL_MAX_WEIGHT);
 		// Last_Delivery_Time
-		Clock.LAST_DELIVERY_TIME = Integer.parseInt(automailProperties.getProperty("Last_Delivery_Time"));
-        System.out.printf("Last_Delivery_Time: %5d%n", Clock.LAST_DELIVERY_TIME);
+		Clock.LAST_DELIVERY_TIME = intProperty(automailProperties, "Last_Delivery_Time", 1);
+        Trace.printf("Last_Delivery_Time: %5d%n", Clock.LAST_DELIVERY_TIME);
 		// Robots
-		int robots = Integer.parseInt(automailProperties.getProperty("Robots"));
-		System.out.print("Robots: "); System.out.println(robots);
-		assert(robots > 0);
+		int robots = intProperty(automailProperties, "Robots", 1);
+		Trace.printf("Robots: %d%n", robots);
+		// Step_Parallelism, threads to step robots on (not part of the trace)
+		int stepParallelism = intProperty(automailProperties, "Step_Parallelism", 1);
+		// Pipelined, run arrival, stepping and trace output on separate threads
+		boolean pipelined = Boolean.parseBoolean(automailProperties.getProperty("Pipelined"));
+		// Tick_Report, print wall time per tick to stderr
+		boolean tickReport = Boolean.parseBoolean(automailProperties.getProperty("Tick_Report"));
+		// Actors, run every robot and robot team as an actor
+		boolean actors = Boolean.parseBoolean(automailProperties.getProperty("Actors"));
+		// Actor_Response_Nanos, longest time a robot actor takes to answer
+		long actorResponseNanos = longProperty(automailProperties, "Actor_Response_Nanos", 0, Long.MAX_VALUE);
+		// Tick_Profile, time the phases of every tick and print them with the results
+		boolean tickProfile = Boolean.parseBoolean(automailProperties.getProperty("Tick_Profile"));
+		// Tick_Profile_File, file to dump the phase histograms to, empty for none
+		String tickProfileFile = automailProperties.getProperty("Tick_Profile_File");
+		TickProfiler.reset(tickProfile);
+		// Latency_Report, print delivery latency by priority class and floor with the results
+		boolean latencyReport = Boolean.parseBoolean(automailProperties.getProperty("Latency_Report"));
+		deliveryLatency = latencyReport ? new DeliveryLatency(Building.FLOORS) : null;
+		// Fleet_Report, print utilization and travel counters of the robots with the results
+		boolean fleetReport = Boolean.parseBoolean(automailProperties.getProperty("Fleet_Report"));
+		// Metrics_Port, serve live metrics on this loopback port while running, empty for none
+		String metricsPort = automailProperties.getProperty("Metrics_Port").trim();
+		if (!metricsPort.isEmpty()) {
+			longProperty(automailProperties, "Metrics_Port", 0, 65535);
+		}
+		// Tick_Series_File, file to record the state of every tick into, empty for none
+		String tickSeriesFile = automailProperties.getProperty("Tick_Series_File").trim();
+		// Shared_Telemetry_File, memory mapped file to publish the live state in for a monitor, empty for none
+		String sharedTelemetryFile = automailProperties.getProperty("Shared_Telemetry_File").trim();
+		LiveMetrics.reset(!metricsPort.isEmpty() || !tickSeriesFile.isEmpty() || !sharedTelemetryFile.isEmpty());
+		// Delivery_Record_File, file to write a record of every delivery to, empty for none
+		String deliveryRecordFile = automailProperties.getProperty("Delivery_Record_File").trim();
+		// Decision_Corpus_File, file to record the inputs of every mail item plan into, empty for none
+		String decisionCorpusFile = automailProperties.getProperty("Decision_Corpus_File").trim();
+		// Invariant_Check, off, sampled or full, empty for full with assertions enabled and off otherwise
+		InvariantChecker.Mode invariantCheck;
+		try {
+			invariantCheck = InvariantChecker.parseMode(automailProperties.getProperty("Invariant_Check").trim());
+		} catch (IllegalArgumentException e) {
+			throw new InvalidConfigurationException("Invariant_Check must be off, sampled or full: "
+					+ automailProperties.getProperty("Invariant_Check"), e);
+		}
+		// Invariant_Sample_Every, operations and ticks between checks when sampled
+		int invariantSampleEvery = intProperty(automailProperties, "Invariant_Sample_Every", 1);
+		InvariantChecker.reset(invariantCheck, invariantSampleEvery);
+		// Watchdog_Window, ticks without progress after the last mail arrival before ending the run,
+		// empty for a window from the floors, 0 for no limit
+		int watchdogWindow = automailProperties.getProperty("Watchdog_Window").trim().isEmpty() ? -1 :
+				intProperty(automailProperties, "Watchdog_Window", 0);
+		// Watchdog_Horizon, tick to end the run at, empty for a horizon from the mail, 0 for no limit
+		int watchdogHorizon = automailProperties.getProperty("Watchdog_Horizon").trim().isEmpty() ? -1 :
+				intProperty(automailProperties, "Watchdog_Horizon", 0);
+		// Mail_Generator, legacy for one Random drawn in order, split for parallel streams per attribute and mail item
+		String mailGeneratorName = automailProperties.getProperty("Mail_Generator").trim();
+		if (!mailGeneratorName.equals("legacy") && !mailGeneratorName.equals("split")) {
+			throw new InvalidConfigurationException("Mail_Generator must be legacy or split: " + mailGeneratorName);
+		}
+		boolean splitMailGenerator = mailGeneratorName.equals("split");
+		// Workload_Cache, share the generated mail with later runs of the same seed and mail properties
+		boolean workloadCache = Boolean.parseBoolean(automailProperties.getProperty("Workload_Cache"));
+		// Workload_Cache_Dir, directory to keep the shared mail in across JVMs, empty for memory only
+		String workloadCacheDir = automailProperties.getProperty("Workload_Cache_Dir").trim();
 
 		// End properties
 		
@@ -85,18 +313,14 @@ public class Simulation {
         /** Used to see whether a seed is initialized or not */
         HashMap<Boolean, Integer> seedMap = new HashMap<>();
         
-        /** Read the first argument and save it as a seed if it exists */
-        if (args.length == 0 ) { // No arg
-        	if (seedProp == null) { // and no property
-        		seedMap.put(false, 0); // so randomise
-        	} else { // Use property seed
-        		seedMap.put(true, Integer.parseInt(seedProp));
-        	}
-        } else { // Use arg seed - overrides property
-        	seedMap.put(true, Integer.parseInt(args[0]));
+        /** Use the property seed if it exists */
+        if (seedProp == null) { // no property
+        	seedMap.put(false, 0); // so randomise
+        } else { // Use property seed
+        	seedMap.put(true, intProperty(automailProperties, "Seed", Integer.MIN_VALUE));
         }
         Integer seed = seedMap.get(true);
-        System.out.printf("Seed: %s%n", seed == null ? "null" : seed.toString());
+        Trace.printf("Seed: %s%n", seed == null ? "null" : seed.toString());
 
         /* check are we have enough robots in system to deliver all mail items */
         int ROBOT_CARRY_MAX_WEIGHT;
@@ -113,51 +337,201 @@ public class Simulation {
 				ROBOT_CARRY_MAX_WEIGHT = ITeamState.TRIPLE_MAX_WEIGHT;
 		}
 		if (ROBOT_CARRY_MAX_WEIGHT < MAIL_MAX_WEIGHT) {
-			throw new NotEnoughRobotException();
+			return RunResult.failed(new NotEnoughRobotException(), Clock.Time(), 0, 0);
 		}
 
         /* initialize whole system */
         MailPool mailPool = new MailPool(new SelectMailItemToDeliverPlan(), new SelectRobotToDeliverPlan());
-        Automail automail = new Automail(mailPool, new ReportDelivery(), robots);
+        IMailDelivery delivery = new ReportDelivery();
+        /* in actor mode every robot is driven by its own actor instead */
+        Automail automail = actors ? null : new Automail(mailPool, delivery, robots, stepParallelism);
 
-        MailGenerator mailGenerator = new MailGenerator(MAIL_TO_CREATE, MAIL_MAX_WEIGHT, automail.getMailPool(), seedMap);
+        /* a random run has no workload to share */
+        MailGenerator mailGenerator = workloadCache && seed != null ?
+                new MailGenerator(WorkloadCache.workload(seed, MAIL_TO_CREATE, MAIL_MAX_WEIGHT, splitMailGenerator,
+                        workloadCacheDir.isEmpty() ? null : Paths.get(workloadCacheDir)), MAIL_MAX_WEIGHT, mailPool) :
+                new MailGenerator(MAIL_TO_CREATE, MAIL_MAX_WEIGHT, mailPool, seedMap, splitMailGenerator);
         
         /** Initiate all the mail */
         mailGenerator.generateAllMail();
-        // PriorityMailItem priority;  // Not used in this version
-        while (MAIL_DELIVERED.size() != mailGenerator.MAIL_TO_CREATE) {
-            mailGenerator.step();
+        BooleanSupplier isComplete = () -> MAIL_DELIVERED.size() == mailGenerator.MAIL_TO_CREATE;
+        ProgressWatchdog.reset(
+                watchdogWindow < 0 ? ProgressWatchdog.defaultWindow(Building.FLOORS) : watchdogWindow,
+                watchdogHorizon < 0 ?
+                        ProgressWatchdog.defaultHorizon(Clock.LAST_DELIVERY_TIME, mailGenerator.MAIL_TO_CREATE,
+                                Building.FLOORS) : watchdogHorizon);
+
+        MetricsServer metricsServer = null;
+        if (!metricsPort.isEmpty()) {
+            try {
+                metricsServer = new MetricsServer(Integer.parseInt(metricsPort));
+                System.err.printf("Metrics at http://127.0.0.1:%d/metrics%n", metricsServer.getPort());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (!tickSeriesFile.isEmpty()) {
             try {
-                /* step all components of the system */
-                automail.step();
-			} catch (InvalidDispatchException e) {
-				e.printStackTrace();
-				System.out.println("Simulation unable to complete.");
-				System.exit(0);
-			}
-            Clock.Tick();
+                TickSeries.open(tickSeriesFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (!sharedTelemetryFile.isEmpty()) {
+            try {
+                SharedTelemetry.open(sharedTelemetryFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (!decisionCorpusFile.isEmpty()) {
+            try {
+                DecisionCorpus.open(decisionCorpusFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        deliveryRecords = null;
+        if (!deliveryRecordFile.isEmpty()) {
+            try {
+                deliveryRecords = new DeliveryRecordWriter(Paths.get(deliveryRecordFile));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        long startNanos = System.nanoTime();
+        int startTime = Clock.Time();
+        PipelinedRunner pipelinedRunner = null;
+        List<Robot> fleet = actors ? null : automail.getRobots();
+        Throwable failure = null;
+        try {
+            if (actors) {
+                ActorRunner actorRunner =
+                        new ActorRunner(mailGenerator, mailPool, delivery, robots, actorResponseNanos, isComplete);
+                fleet = actorRunner.getRobots();
+                actorRunner.run();
+            } else if (pipelined) {
+                pipelinedRunner = new PipelinedRunner(mailGenerator, automail, isComplete);
+                pipelinedRunner.run();
+            } else {
+                /* when profiling, the trace of a tick is written at its end as its own phase */
+                TraceBatch tickTrace = tickProfile ? new TraceBatch() : null;
+                Trace.collectInto(tickTrace);
+                TickProfiler.startLaps();
+                try {
+                    // PriorityMailItem priority;  // Not used in this version
+                    while (!isComplete.getAsBoolean()) {
+                        mailGenerator.step();
+                        TickProfiler.lap(TickProfiler.Phase.MAIL_GENERATION);
+                        /* step all components of the system */
+                        automail.step();
+                        Clock.Tick();
+                        TickProfiler.lap(TickProfiler.Phase.TELEMETRY);
+                        if (tickTrace != null) {
+                            writeTickTrace(tickTrace);
+                        }
+                    }
+                } finally {
+                    Trace.collectInto(null);
+                    if (tickTrace != null) {
+                        writeTickTrace(tickTrace);
+                    }
+                }
+            }
+        } catch (InvalidDispatchException e) {
+            Trace.printf("Simulation unable to complete.%n");
+            failure = e;
+        } catch (RuntimeException | AssertionError e) {
+            failure = e;
+        } finally {
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            SharedTelemetry.close();
+            try {
+                TickSeries.close();
+                DecisionCorpus.close();
+                if (deliveryRecords != null) {
+                    deliveryRecords.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (failure != null) {
+            return RunResult.failed(failure, Clock.Time(), MAIL_DELIVERED.size(), total_score.doubleValue());
+        }
+        if (tickReport) {
+            int ticks = Clock.Time() - startTime;
+            System.err.printf("%s run: %d ticks, %d ns/tick%n",
+                    actors ? "Actor" : pipelined ? "Pipelined" : "Serial",
+                    ticks, ticks == 0 ? 0 : (System.nanoTime() - startNanos) / ticks);
+            if (pipelinedRunner != null) {
+                pipelinedRunner.printStageReport(System.err);
+            }
         }
         printResults();
+        if (fleetReport) {
+            FleetReport.print(fleet, Clock.Time());
+        }
+        if (tickProfile && !tickProfileFile.isEmpty()) {
+            try {
+                TickProfiler.dump(tickProfileFile);
+            } catch (FileNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
+        return RunResult.completed(Clock.Time(), MAIL_DELIVERED.size(), total_score.doubleValue());
+    }
+
+    /**
+     * Write and clear the trace collected in a tick, the trace output lap
+     * @param tickTrace the trace of the tick
+     */
+    private static void writeTickTrace(TraceBatch tickTrace) {
+        tickTrace.writeTo(Trace.getOut());
+        tickTrace.clear();
+        TickProfiler.lap(TickProfiler.Phase.TRACE_OUTPUT);
     }
     
     static class ReportDelivery implements IMailDelivery {
     	
     	/** Confirm the delivery and calculate the total score */
     	public void deliver(MailItem deliveryItem){
+    		deliver(deliveryItem, -1, 0);
+    	}
+
+    	/** Confirm the delivery and calculate the total score, recording who delivered it */
+    	@Override
+    	public void deliver(MailItem deliveryItem, int robotNumber, int teamSize){
     		if(!MAIL_DELIVERED.contains(deliveryItem)){
     			MAIL_DELIVERED.add(deliveryItem);
-                System.out.printf("T: %3d > Delivered(%4d) [%s]%n", Clock.Time(), MAIL_DELIVERED.size(), deliveryItem.toString());
+                Trace.printf("T: %3d > Delivered(%4d) [%s]%n", Clock.Time(), MAIL_DELIVERED.size(), deliveryItem.toString());
     			// Calculate delivery score
-    			total_score += calculateDeliveryScore(deliveryItem);
+    			double score = calculateDeliveryScore(deliveryItem);
+    			total_score.add(score);
+    			DeliveryEvent.commit(Clock.Time(), deliveryItem, score);
+    			ProgressWatchdog.progressed();
+    			LiveMetrics.delivered(score);
+    			/* 0 for normal mail */
+    			int priorityLevel = deliveryItem instanceof PriorityMailItem ?
+    					((PriorityMailItem) deliveryItem).getPriorityLevel() : DeliveryLatency.NORMAL;
+    			if (deliveryLatency != null) {
+    				deliveryLatency.record(priorityLevel, deliveryItem.getDestinationFloor(),
+    						Clock.Time() - deliveryItem.getArrivalTime(), score);
+    			}
+    			SharedTelemetry.delivered(Clock.Time(), deliveryItem.hashCode(), deliveryItem.getDestinationFloor(),
+    					priorityLevel, score);
+    			if (deliveryRecords != null) {
+    				deliveryRecords.write(deliveryItem.hashCode(), deliveryItem.getArrivalTime(), Clock.Time(),
+    						deliveryItem.getDestinationFloor(), deliveryItem.getWeight(), priorityLevel,
+    						robotNumber, teamSize, score);
+    			}
     		}
     		else{
-    			try {
-    				throw new MailAlreadyDeliveredException();
-    			} catch (MailAlreadyDeliveredException e) {
-                    System.err.println(deliveryItem.toString());
-    				e.printStackTrace();
-    				System.exit(1);
-    			}
+    			throw new SimulationAbortedException(deliveryItem.toString(), new MailAlreadyDeliveredException());
     		}
     	}
 
@@ -175,8 +549,14 @@ public class Simulation {
     }
 
     public static void printResults(){
-        System.out.println("T: "+Clock.Time()+" | Simulation complete!");
-        System.out.println("Final Delivery time: "+Clock.Time());
-        System.out.printf("Final Score: %.2f%n", total_score);
+        Trace.printf("T: %d | Simulation complete!%n", Clock.Time());
+        Trace.printf("Final Delivery time: %d%n", Clock.Time());
+        Trace.printf("Final Score: %.2f%n", total_score.doubleValue());
+        if (deliveryLatency != null) {
+            deliveryLatency.printReport();
+        }
+        if (TickProfiler.isEnabled()) {
+            TickProfiler.printSummary();
+        }
     }
 }
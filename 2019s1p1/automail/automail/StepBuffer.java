@@ -0,0 +1,65 @@
+package automail;
+
+import java.util.ArrayList;
+
+/**
+ * description: Buffers the side effects (trace output, registerWaiting and
+ *              deliveries) of IRobots stepped on a worker thread, so they can
+ *              be replayed later in the same order as sequential stepping.
+ **/
+
+public class StepBuffer {
+    /**
+     * the buffer opened on the current thread, null when effects run directly
+     */
+    private static final ThreadLocal<StepBuffer> CURRENT = new ThreadLocal<>();
+
+    /**
+     * side effects in the order they were raised
+     */
+    private final ArrayList<Runnable> effects = new ArrayList<>();
+
+    /**
+     * Run the side effect now, or record it if a buffer is opened on this thread
+     * @param effect the side effect of stepping an IRobot
+     */
+    public static void run(Runnable effect) {
+        StepBuffer buffer = CURRENT.get();
+        if (buffer == null) {
+            effect.run();
+        } else {
+            buffer.effects.add(effect);
+        }
+    }
+
+    /**
+     * @return true if side effects raised on this thread are being buffered
+     */
+    public static boolean isBuffering() {return CURRENT.get() != null;}
+
+    /**
+     * Start recording side effects raised on the current thread into this buffer
+     */
+    public void open() {
+        assert CURRENT.get() == null;
+        CURRENT.set(this);
+    }
+
+    /**
+     * Stop recording side effects raised on the current thread
+     */
+    public void close() {
+        assert CURRENT.get() == this;
+        CURRENT.remove();
+    }
+
+    /**
+     * Run all recorded side effects in the order they were raised, then forget them
+     */
+    public void replay() {
+        for (Runnable effect: effects) {
+            effect.run();
+        }
+        effects.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package automail;
+
+import java.io.PrintStream;
+
+/**
+ * description: The trace output of the simulation. Lines printed while an
+ *              IRobot is stepped on a worker thread are formatted there and
+ *              written when its StepBuffer is replayed. Lines can also be
+ *              collected into a TraceBatch for another thread to write.
+ **/
+
+public class Trace {
+    /**
+     * where the trace is written to, null to drop it
+     */
+    private static PrintStream out = System.out;
+
+    /**
+     * collects the trace instead of writing it, null to write straight away
+     */
+    private static TraceBatch batch = null;
+
+    /**
+     * Print a formatted trace line
+     * @param format format string as in PrintStream.printf
+     * @param args arguments referenced by the format
+     */
+    public static void printf(String format, Object... args) {
+        if (out == null) {
+            return;
+        }
+        if (StepBuffer.isBuffering()) {
+            String line = String.format(format, args);
+            StepBuffer.run(() -> print(line));
+        } else if (batch != null) {
+            batch.add(format, args);
+        } else {
+            out.printf(format, args);
+        }
+    }
+
+    /**
+     * Print an already formatted trace line
+     * @param line the line including its line separator
+     */
+    public static void print(String line) {
+        if (out == null) {
+            return;
+        }
+        if (StepBuffer.isBuffering()) {
+            StepBuffer.run(() -> print(line));
+        } else if (batch != null) {
+            batch.add(line);
+        } else {
+            out.print(line);
+        }
+    }
+
+    /**
+     * @return the stream trace is written to, null if it is dropped
+     */
+    public static PrintStream getOut() {return out;}
+
+    /**
+     * Redirect the trace
+     * @param out the stream trace is written to from now on, null to drop it without formatting it
+     */
+    public static void setOut(PrintStream out) {Trace.out = out;}
+
+    /**
+     * Collect the trace printed by the simulation thread from now on
+     * @param batch the batch to collect into, null to write the trace straight away again
+     */
+    public static void collectInto(TraceBatch batch) {Trace.batch = batch;}
+}
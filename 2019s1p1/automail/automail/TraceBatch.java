@@ -0,0 +1,71 @@
+package automail;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Formatter;
+
+/**
+ * description: The trace of one tick kept unformatted, so it can be formatted
+ *              and written by another thread. All arguments of trace lines are
+ *              evaluated when the line is printed (ids, times, toString of
+ *              mail items), so formatting them later gives the same line.
+ **/
+
+public class TraceBatch {
+    /**
+     * format of each line, or the line itself if it has no arguments
+     */
+    private final ArrayList<String> formats = new ArrayList<>();
+
+    /**
+     * arguments of each line, null if the line is already formatted
+     */
+    private final ArrayList<Object[]> args = new ArrayList<>();
+
+    /**
+     * the formatted lines, reused between writes
+     */
+    private final StringBuilder text = new StringBuilder();
+    private final Formatter formatter = new Formatter(text);
+
+    /**
+     * @param format: format string as in PrintStream.printf
+     * @param args: arguments referenced by the format
+     */
+    void add(String format, Object[] args) {
+        this.formats.add(format);
+        this.args.add(args);
+    }
+
+    /**
+     * @param line: an already formatted line
+     */
+    void add(String line) {add(line, null);}
+
+    /**
+     * Format all lines in the order they were printed and write them at once
+     * @param out: the stream to write to
+     */
+    public void writeTo(PrintStream out) {
+        if (formats.isEmpty()) {
+            return;
+        }
+        text.setLength(0);
+        for (int i = 0; i < formats.size(); i++) {
+            if (args.get(i) == null) {
+                text.append(formats.get(i));
+            } else {
+                formatter.format(formats.get(i), args.get(i));
+            }
+        }
+        out.print(text);
+    }
+
+    /**
+     * forget all lines, so the batch can collect the next tick
+     */
+    public void clear() {
+        formats.clear();
+        args.clear();
+    }
+}
@@ -0,0 +1,105 @@
+package automail;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * description: The mail items of a run in the order MailGenerator generated
+ *              them, as one int array: the destination floors, then the
+ *              arrival times, the weights and the priority levels, 0 for a
+ *              normal mail item. Creating the mail items in this order gives
+ *              them the ids generating them gives. The array is never written
+ *              after it is made, so one workload is shared by any number of
+ *              runs, and as an int array also by runs in other class loaders.
+ **/
+
+public final class Workload {
+    private static final int MAGIC = 0x41574c31;
+
+    private final int[] packed;
+    private final int size;
+
+    /**
+     * @param packed: the packed form of a workload, not written afterwards
+     */
+    Workload(int[] packed) {
+        if (packed.length % 4 != 0) {
+            throw new IllegalArgumentException("Not a packed workload, length " + packed.length);
+        }
+        this.packed = packed;
+        this.size = packed.length / 4;
+    }
+
+    /**
+     * @return the mail items
+     */
+    public int size() {return size;}
+
+    public int destinationFloor(int i) {return packed[i];}
+
+    public int arrivalTime(int i) {return packed[size + i];}
+
+    public int weight(int i) {return packed[2 * size + i];}
+
+    /**
+     * @return the priority level of the i-th mail item, 0 if it is a normal mail item
+     */
+    public int priorityLevel(int i) {return packed[3 * size + i];}
+
+    /**
+     * @param i: which mail item
+     * @return a new MailItem or PriorityMailItem of it
+     */
+    public MailItem createMailItem(int i) {
+        int priorityLevel = priorityLevel(i);
+        return priorityLevel == 0 ? new MailItem(destinationFloor(i), arrivalTime(i), weight(i)) :
+                new PriorityMailItem(destinationFloor(i), arrivalTime(i), weight(i), priorityLevel);
+    }
+
+    /**
+     * @return the packed form, which must not be written
+     */
+    int[] packed() {return packed;}
+
+    /**
+     * Write the workload to a file, through a temporary file so a reader
+     * never sees a part of it
+     * @param path: the file
+     * @throws IOException if it can not be written
+     */
+    public void writeTo(Path path) throws IOException {
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(packed.length);
+            for (int value: packed) {
+                out.writeInt(value);
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param path: a file written by writeTo
+     * @return the workload in it
+     * @throws IOException if it can not be read or is not a workload
+     */
+    public static Workload readFrom(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a workload");
+            }
+            int[] packed = new int[in.readInt()];
+            for (int i = 0; i < packed.length; i++) {
+                packed[i] = in.readInt();
+            }
+            return new Workload(packed);
+        }
+    }
+}
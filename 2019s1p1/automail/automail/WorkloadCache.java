@@ -0,0 +1,83 @@
+package automail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * description: Workloads generated before, by seed, mail to create, mail max
+ *              weight, generator, floors and last delivery time, which are
+ *              all that generating a workload depends on. Runs of a sweep
+ *              which only differ in their robots or strategies get the same
+ *              workload without generating it again. A workload is generated
+ *              once even when runs ask for it at the same time, and is then
+ *              shared read-only. With a directory, workloads are also written
+ *              to it and read back by later JVMs. Tools running simulations
+ *              in several class loaders share one store between them.
+ **/
+
+public class WorkloadCache {
+    /**
+     * workloads kept at most, further ones are generated without keeping them
+     */
+    private static final int MAX_WORKLOADS = 256;
+
+    private static ConcurrentMap<String, int[]> store = new ConcurrentHashMap<>();
+
+    /**
+     * Keep workloads in the given store, so copies of the simulation in other
+     * class loaders given the same store share them
+     * @param store: packed workloads by key
+     */
+    public static void share(ConcurrentMap<String, int[]> store) {WorkloadCache.store = store;}
+
+    /**
+     * @param seed: the random seed
+     * @param mailToCreate: the Mail_to_Create property
+     * @param mailMaxWeight: the heaviest a mail item may be
+     * @param split: generated by the split generator instead of the legacy one
+     * @param directory: where workloads are written to and read from, null for none
+     * @return the workload generated for these and the current floors and last delivery time
+     */
+    public static Workload workload(int seed, int mailToCreate, int mailMaxWeight, boolean split, Path directory) {
+        String key = String.format("s%d-m%d-w%d-f%d-t%d%s", seed, mailToCreate, mailMaxWeight, Building.FLOORS,
+                Clock.LAST_DELIVERY_TIME, split ? "-split" : "");
+        int[] packed = store.get(key);
+        if (packed == null) {
+            packed = store.size() < MAX_WORKLOADS ?
+                    store.computeIfAbsent(key, k -> load(k, seed, mailToCreate, mailMaxWeight, split, directory)) :
+                    load(key, seed, mailToCreate, mailMaxWeight, split, directory);
+        }
+        return new Workload(packed);
+    }
+
+    /**
+     * read the workload from the directory, or generate it and write it there
+     */
+    private static int[] load(String key, int seed, int mailToCreate, int mailMaxWeight, boolean split,
+                              Path directory) {
+        Path file = directory == null ? null : directory.resolve("workload-" + key + ".bin");
+        if (file != null && Files.exists(file)) {
+            try {
+                return Workload.readFrom(file).packed();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        HashMap<Boolean, Integer> seedMap = new HashMap<>();
+        seedMap.put(true, seed);
+        Workload workload = new MailGenerator(mailToCreate, mailMaxWeight, null, seedMap, split).generateWorkload();
+        if (file != null) {
+            try {
+                Files.createDirectories(directory);
+                workload.writeTo(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return workload.packed();
+    }
+}
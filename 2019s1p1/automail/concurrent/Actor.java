@@ -0,0 +1,103 @@
+package concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * description: A lightweight actor: messages told to it are queued in its
+ *              mailbox and received one at a time, never concurrently, on a
+ *              thread of the shared executor. An actor without messages holds
+ *              no thread, so there can be an actor for every robot.
+ **/
+
+public abstract class Actor<M> {
+    /**
+     * messages received before the actor hands its thread back
+     */
+    private static final int MESSAGES_PER_TURN = 64;
+
+    /**
+     * runs the actors' turns
+     */
+    private final Executor executor;
+
+    /**
+     * messages not yet received
+     */
+    private final ConcurrentLinkedQueue<M> mailbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * true while a turn of this actor is submitted or running
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * @param executor: runs the actor's turns
+     */
+    protected Actor(Executor executor) {this.executor = executor;}
+
+    /**
+     * Send a message to this actor, never blocks
+     * @param message: the message
+     */
+    public void tell(M message) {
+        mailbox.add(message);
+        schedule();
+    }
+
+    /**
+     * Handle a message, only ever called for one message at a time
+     * @param message: the message
+     */
+    protected abstract void receive(M message);
+
+    /**
+     * Called when receiving a message threw
+     * @param failure: what receive threw
+     */
+    protected void onFailure(Throwable failure) {failure.printStackTrace();}
+
+    /**
+     * An executor running each actor turn on a virtual thread when the JVM has
+     * them, otherwise on a fork join pool with one thread per core.
+     * @return a new executor for actors, to be shut down after use
+     */
+    public static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                    ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        }
+    }
+
+    /**
+     * submit a turn unless one is already submitted
+     */
+    private void schedule() {
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+            executor.execute(this::turn);
+        }
+    }
+
+    /**
+     * receive queued messages, then hand the thread back
+     */
+    private void turn() {
+        M message;
+        for (int i = 0; i < MESSAGES_PER_TURN && (message = mailbox.poll()) != null; i++) {
+            try {
+                receive(message);
+            } catch (Throwable t) {
+                onFailure(t);
+            }
+        }
+        scheduled.set(false);
+        /* messages told while the turn was ending */
+        schedule();
+    }
+}
@@ -0,0 +1,170 @@
+package concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * description: A bounded lock free queue with exactly one producer thread and
+ *              one consumer thread. Blocking calls spin for a while and then
+ *              park briefly, so an idle stage does not burn a whole core.
+ **/
+
+public class SpscQueue<T> {
+    /**
+     * times a blocking call spins before it starts to park
+     */
+    private static final int SPIN_TRIES = 1000;
+
+    /**
+     * how long a blocking call parks before it checks again
+     */
+    private static final long PARK_NANOS = 50_000;
+
+    /**
+     * ring buffer of the elements, its length is a power of 2
+     */
+    private final Object[] buffer;
+
+    /**
+     * mask of an index into the buffer
+     */
+    private final int mask;
+
+    /**
+     * index of the next element to take, only advanced by the consumer
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * index of the next element to put, only advanced by the producer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity: the least number of elements the queue can hold
+     */
+    public SpscQueue(int capacity) {
+        assert capacity > 0;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        buffer = new Object[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Producer only: add the element if there is space
+     * @param element: the element to add
+     * @return true if added, false if the queue is full
+     */
+    public boolean offer(T element) {
+        long t = tail.get();
+        if (t - head.get() == buffer.length) {
+            return false;
+        }
+        buffer[(int) t & mask] = element;
+        /* publishes the element to the consumer */
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer only: remove the oldest element if there is one
+     * @return the oldest element, null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int index = (int) h & mask;
+        T element = (T) buffer[index];
+        buffer[index] = null;
+        /* hands the slot back to the producer */
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    /**
+     * Producer only: add the element, waiting for space if the queue is full
+     * @param element: the element to add
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void put(T element) throws InterruptedException {
+        int tries = 0;
+        while (!offer(element)) {
+            idle(tries++);
+        }
+    }
+
+    /**
+     * Consumer only: remove the oldest element, waiting for one if the queue is empty
+     * @return the oldest element
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        int tries = 0;
+        T element;
+        while ((element = poll()) == null) {
+            idle(tries++);
+        }
+        return element;
+    }
+
+    /**
+     * Producer only: add the element, waiting for space until the consumer is gone
+     * @param element: the element to add
+     * @param abandoned: true once the consumer will not take any more elements
+     * @return true if added, false if abandoned while the queue was full
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean put(T element, BooleanSupplier abandoned) throws InterruptedException {
+        int tries = 0;
+        while (!offer(element)) {
+            if (abandoned.getAsBoolean()) {
+                return false;
+            }
+            idle(tries++);
+        }
+        return true;
+    }
+
+    /**
+     * Consumer only: remove the oldest element, waiting for one until the producer is gone
+     * @param abandoned: true once the producer will not put any more elements
+     * @return the oldest element, null if abandoned while the queue was empty
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T take(BooleanSupplier abandoned) throws InterruptedException {
+        int tries = 0;
+        T element;
+        while ((element = poll()) == null) {
+            if (abandoned.getAsBoolean()) {
+                return null;
+            }
+            idle(tries++);
+        }
+        return element;
+    }
+
+    /**
+     * @return number of elements in the queue, only a snapshot
+     */
+    public int size() {return (int) (tail.get() - head.get());}
+
+    /**
+     * wait a little before trying again
+     * @param tries: number of tries so far
+     * @throws InterruptedException if the thread has been interrupted
+     */
+    private static void idle(int tries) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package exceptions;
+
+/**
+ * description: This exception indicates a property of a simulation is
+ *              missing, can not be parsed or is out of range, so the run is
+ *              not started.
+ **/
+
+public class InvalidConfigurationException extends RuntimeException {
+    public InvalidConfigurationException(String message) {
+        super(message);
+    }
+
+    public InvalidConfigurationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
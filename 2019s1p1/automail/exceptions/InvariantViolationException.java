@@ -0,0 +1,12 @@
+package exceptions;
+
+/**
+ * description: This exception indicates the InvariantChecker found the state
+ *              of the mail pool or the robots inconsistent.
+ **/
+
+public class InvariantViolationException extends RuntimeException {
+    public InvariantViolationException(int time, String message) {
+        super(String.format("T: %d: %s", time, message));
+    }
+}
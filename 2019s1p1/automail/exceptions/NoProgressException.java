@@ -0,0 +1,13 @@
+package exceptions;
+
+/**
+ * description: This exception indicates the ProgressWatchdog found a run
+ *              which stopped making progress, its message holds a snapshot
+ *              of the mail pool and the robots.
+ **/
+
+public class NoProgressException extends RuntimeException {
+    public NoProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package exceptions;
+
+/**
+ * description: This exception ends a run which can not continue, carrying
+ *              what went wrong as its cause up to Simulation.run, where it
+ *              becomes the failure of the run's RunResult.
+ **/
+
+public class SimulationAbortedException extends RuntimeException {
+    public SimulationAbortedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,11 +1,21 @@
 package strategies;
 
+import automail.Clock;
 import automail.IMailDelivery;
 import automail.IRobot;
+import automail.ProgressWatchdog;
+import automail.Robot;
 import automail.RobotFactory;
+import automail.StepBuffer;
 import exceptions.InvalidDispatchException;
+import telemetry.TickProfiler;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Team Number: WS12-3
@@ -16,6 +26,22 @@ import java.util.ArrayList;
  **/
 
 public class Automail {
+    /**
+     * smallest number of IRobots stepped together by one worker thread
+     */
+    private static final int MIN_STEP_CHUNK = 1024;
+
+    /**
+     * chunks per worker thread, so faster threads can take over the rest
+     */
+    private static final int STEP_CHUNKS_PER_THREAD = 4;
+
+    /**
+     * the step pools by parallelism, created on first use and shared by every
+     * Automail after it, so runs in a batch do not each leave a pool behind
+     */
+    private static final ConcurrentMap<Integer, ForkJoinPool> STEP_POOLS = new ConcurrentHashMap<>();
+
     /**
      * the List to store the IRobot to be stepped in current time frame
      * */
@@ -27,52 +53,163 @@ public class Automail {
     private ArrayList<IRobot> nextStepIRobotList;
 
 
+    /**
+     * all robots in the building
+     */
+    private final ArrayList<Robot> robots = new ArrayList<>();
+
     /**
      * the mailPool component
      */
     private IMailPool mailPool;
 
+    /**
+     * number of threads robots are stepped on, 1 to step them sequentially
+     */
+    private final int stepParallelism;
+
+    /**
+     * the shared threads stepping robots in parallel, null when stepping sequentially
+     */
+    private final ForkJoinPool stepPool;
+
+    /**
+     * create AutoMail with two components (mail pool and robots) in the system
+     * @param mailPool: MailPool in the system
+     * @param delivery: Confirm the delivery and calculate the total score
+     * @param numRobots: number of robots in the building
+     * */
+    public Automail(IMailPool mailPool, IMailDelivery delivery, int numRobots) {
+        this(mailPool, delivery, numRobots, 1);
+    }
+
     /**
      * create AutoMail with two components (mail pool and robots) in the system
      * @param mailPool: MailPool in the system
      * @param delivery: Confirm the delivery and calculate the total score
      * @param numRobots: number of robots in the building
+     * @param stepParallelism: number of threads to step robots on, 1 to step sequentially
      * */
-    public Automail(MailPool mailPool, IMailDelivery delivery, int numRobots) {
+    public Automail(IMailPool mailPool, IMailDelivery delivery, int numRobots, int stepParallelism) {
     	// Swap between simple provided strategies and your strategies here
 
     	/* Initialize the MailPool */
     	this.mailPool = mailPool;
+
+    	assert stepParallelism > 0;
+    	this.stepParallelism = stepParallelism;
+    	this.stepPool = stepParallelism > 1 ? STEP_POOLS.computeIfAbsent(stepParallelism, ForkJoinPool::new) : null;
     	
     	/* Initialize robots */
         currentStepIRobotList = new ArrayList<>();
         nextStepIRobotList = new ArrayList<>();
         /* initial robot in returning state to mail room */
     	for (int i = 0; i < numRobots; i++) {
-            currentStepIRobotList.add(RobotFactory.getInstance().createRobot(mailPool, delivery));
+            robots.add(RobotFactory.getInstance().createRobot(mailPool, delivery));
         }
+        currentStepIRobotList.addAll(robots);
     }
 
     /**
-     * step every component in the system
+     * step every component in the system, its phases are TickProfiler laps
      * */
     public void step() throws InvalidDispatchException {
-        // Add robots just got loaded
+        // Wake robots just got loaded, waiting robots are not stepped otherwise
         ArrayList<IRobot> dispatchedRobots = this.mailPool.step();
+        TickProfiler.lap(TickProfiler.Phase.MAIL_POOL);
+
         currentStepIRobotList.addAll(dispatchedRobots);
         currentStepIRobotList.sort(IRobot.IRobotComparator);
 
-        for (IRobot currentIRobot: this.currentStepIRobotList) {
-            ArrayList<IRobot> activeRobots = currentIRobot.step();
-            nextStepIRobotList.addAll(activeRobots);
+        if (stepPool == null || currentStepIRobotList.size() < 2 * MIN_STEP_CHUNK) {
+            for (IRobot currentIRobot: this.currentStepIRobotList) {
+                ArrayList<IRobot> activeRobots = currentIRobot.step();
+                nextStepIRobotList.addAll(activeRobots);
+            }
+        } else {
+            stepInParallel();
         }
 
         this.currentStepIRobotList = this.nextStepIRobotList;
         this.nextStepIRobotList = new ArrayList<>();
+        TickProfiler.lap(TickProfiler.Phase.ROBOTS);
+
+        if (InvariantChecker.checkTick(Clock.Time())) {
+            mailPool.checkInvariants(robots);
+            TickProfiler.lap(TickProfiler.Phase.INVARIANTS);
+        }
+        ProgressWatchdog.ticked(Clock.Time(), mailPool, robots);
+    }
+
+    /**
+     * step the sorted IRobots in contiguous chunks on the step pool, then merge
+     * the chunks' side effects and active IRobots back in IRobotComparator
+     * order so the result is the same as stepping them sequentially
+     * */
+    private void stepInParallel() {
+        int nIRobots = currentStepIRobotList.size();
+        int nChunks = Math.min(stepParallelism * STEP_CHUNKS_PER_THREAD, nIRobots / MIN_STEP_CHUNK);
+
+        ArrayList<StepChunk> chunks = new ArrayList<>(nChunks);
+        for (int i = 0; i < nChunks; i++) {
+            chunks.add(new StepChunk(currentStepIRobotList.subList(
+                    (int) ((long) nIRobots * i / nChunks), (int) ((long) nIRobots * (i + 1) / nChunks))));
+        }
+        stepPool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {invokeAll(chunks);}
+        });
+
+        for (StepChunk chunk: chunks) {
+            chunk.stepBuffer.replay();
+            nextStepIRobotList.addAll(chunk.activeRobots);
+        }
+    }
+
+    /**
+     * a contiguous part of the IRobots stepped on one worker thread
+     * */
+    private static class StepChunk extends RecursiveAction {
+        /**
+         * the IRobots to step
+         */
+        private final List<IRobot> iRobots;
+
+        /**
+         * IRobots to be stepped in next time frame
+         */
+        private final ArrayList<IRobot> activeRobots = new ArrayList<>();
+
+        /**
+         * side effects raised while stepping, in stepping order
+         */
+        private final StepBuffer stepBuffer = new StepBuffer();
+
+        /**
+         * @param iRobots: the IRobots to step
+         * */
+        private StepChunk(List<IRobot> iRobots) {this.iRobots = iRobots;}
+
+        @Override
+        protected void compute() {
+            stepBuffer.open();
+            try {
+                for (IRobot iRobot: iRobots) {
+                    activeRobots.addAll(iRobot.step());
+                }
+            } finally {
+                stepBuffer.close();
+            }
+        }
     }
 
     /**
      * @return the mail pool in the auto mail
      * */
     public IMailPool getMailPool() {return mailPool;}
+
+    /**
+     * @return all robots in the building
+     * */
+    public List<Robot> getRobots() {return robots;}
 }
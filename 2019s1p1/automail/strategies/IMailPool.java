@@ -6,6 +6,7 @@ import automail.Robot;
 import exceptions.InvalidDispatchException;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Team Number: WS12-3
@@ -29,6 +30,8 @@ public interface IMailPool {
     
     /**
      * load up any waiting robots with mailItems, if any.
+     * Waiting robots are parked outside the stepped robots, the returned
+     * dispatched IRobots are how they are woken up again.
      * @return a list of individual robots or robot team with delivering
      * mailItems
      */
@@ -41,4 +44,18 @@ public interface IMailPool {
      *              mailItems to deliver
      */	
 	void registerWaiting(Robot robot);
+
+	/**
+     * Check the pool and the waiting robots against the robots at the end of
+     * a tick, when the InvariantChecker asks for it
+     * @param fleet: all robots in the building
+     * @throws exceptions.InvariantViolationException if they do not agree
+     */
+	default void checkInvariants(List<Robot> fleet) { }
+
+	/**
+     * Describe the pool and the waiting robots, for a diagnostic snapshot
+     * @return the description
+     */
+	default String describe() {return getClass().getSimpleName();}
 }
@@ -0,0 +1,111 @@
+package strategies;
+
+import automail.Clock;
+import exceptions.InvariantViolationException;
+
+/**
+ * description: Decides when the state of the system is checked, set by the
+ *              Invariant_Check property. An operation check is a cheap check
+ *              of one mail pool operation, such as a robot leaving the
+ *              waiting robots being one of them. A tick check is
+ *              IMailPool.checkInvariants, a pass over the pool and the
+ *              robots at the end of a tick. OFF checks nothing, FULL checks
+ *              every operation and tick, and SAMPLED every Nth operation and
+ *              every Nth tick, so a long run keeps some checking at a small
+ *              cost. A broken invariant throws an
+ *              InvariantViolationException.
+ **/
+
+public class InvariantChecker {
+    public enum Mode {OFF, SAMPLED, FULL}
+
+    private static Mode mode = Mode.OFF;
+
+    /**
+     * N of SAMPLED
+     */
+    private static int sampleEvery = 1;
+
+    /**
+     * operations seen since the last reset
+     */
+    private static long operations = 0;
+
+    /**
+     * Set the mode for a new run
+     * @param mode: when to check
+     * @param sampleEvery: operations and ticks between checks in SAMPLED mode, at least 1
+     */
+    public static void reset(Mode mode, int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1: " + sampleEvery);
+        }
+        InvariantChecker.mode = mode;
+        InvariantChecker.sampleEvery = sampleEvery;
+        operations = 0;
+    }
+
+    /**
+     * @param value: the Invariant_Check property: off, sampled or full, empty for full
+     *               when assertions are enabled and off otherwise
+     * @return the mode it names
+     */
+    public static Mode parseMode(String value) {
+        if (value.isEmpty()) {
+            boolean assertionsEnabled = false;
+            assert assertionsEnabled = true;
+            return assertionsEnabled ? Mode.FULL : Mode.OFF;
+        }
+        return Mode.valueOf(value.toUpperCase());
+    }
+
+    /**
+     * @return the current mode
+     */
+    public static Mode getMode() {return mode;}
+
+    /**
+     * @return true unless checking is OFF, for checks which cost nothing extra
+     */
+    public static boolean isEnabled() {return mode != Mode.OFF;}
+
+    /**
+     * Count an operation
+     * @return true if it is to be checked
+     */
+    public static boolean checkOperation() {
+        switch (mode) {
+            case FULL:
+                return true;
+            case SAMPLED:
+                return ++operations % sampleEvery == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param tick: the tick which is ending
+     * @return true if the state at its end is to be checked
+     */
+    public static boolean checkTick(int tick) {
+        switch (mode) {
+            case FULL:
+                return true;
+            case SAMPLED:
+                return tick % sampleEvery == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Report a broken invariant
+     * @param format: what is broken, a format string
+     * @param args: its arguments
+     * @throws InvariantViolationException always
+     */
+    public static void violated(String format, Object... args) {
+        throw new InvariantViolationException(Clock.Time(), String.format(format, args));
+    }
+}
@@ -1,11 +1,20 @@
 package strategies;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import automail.*;
 import exceptions.*;
+import telemetry.DecisionCorpus;
+import telemetry.LiveMetrics;
+import telemetry.MailArrivalEvent;
+import telemetry.PlanGenerationEvent;
 
 /**
  * Team Number: WS12-3
@@ -60,6 +69,11 @@ public class MailPool implements IMailPool {
 		}
 	}
 
+    /**
+     * mail items and waiting robots listed by describe
+     */
+    private static final int DESCRIBED_MAIL_ITEMS = 20;
+
     /**
      * pool for mail item to be delivered
      */
@@ -101,14 +115,20 @@ public class MailPool implements IMailPool {
 	 * */
 	@Override
 	public void addToPool(MailItem mailItem) {
+        if (InvariantChecker.checkOperation() && pool.contains(mailItem)) {
+            InvariantChecker.violated("%s added to the pool twice", mailItem);
+        }
         pool.add(mailItem);
         pool.sort(new MailItemComparator());
+        MailArrivalEvent.commit(Clock.Time(), mailItem, pool.size());
+        LiveMetrics.poolChanged(priorityLevelOf(mailItem), 1);
+        ProgressWatchdog.progressed();
 	}
 
     /**
      * load up any waiting robots with mailItems, if any.
      * @return a list of individual robots or robot team with delivering
-     * mailItems
+     * mailItems, these are woken up by Automail and start delivering this tick
      */
 	@Override
 	public ArrayList<IRobot> step() throws InvalidDispatchException {
@@ -119,7 +139,11 @@ public class MailPool implements IMailPool {
             while (isPlanAdapted) {
                 isPlanAdapted = false;
 		        /* derived mail items to be delivered by single robot or a robot team */
+                DecisionCorpus.decided(Clock.Time(), robots.size(), pool);
+                PlanGenerationEvent planEvent = new PlanGenerationEvent();
+                planEvent.begin();
                 ArrayList<MailItem> deliverMailItemPlan = selectMailItemToDeliverPlan.generateDeliverMailItemPlan(cloneList(pool));
+                planEvent.commit(Clock.Time(), pool.size(), deliverMailItemPlan.size(), robots.size());
 
                 if (!deliverMailItemPlan.isEmpty() &&
                         selectMailItemToDeliverPlan.hasEnoughRobot(robots.size(), deliverMailItemPlan)) {
@@ -130,15 +154,17 @@ public class MailPool implements IMailPool {
                     /* distribute robots to RobotTeam or be individual robot */
                     IRobot iRobot = RobotFactory.getInstance().createIRobot(selectedRobot, deliverMailItemPlan);
 
+                    /* wake the parked robots up */
                     iRobot.dispatch();
+                    LiveMetrics.dispatched();
 
                     /* update waiting robots in mail pool */
                     for (Robot robot: iRobot.listRobots()) {
                         unregisterWaitingRobot(robot);
                     }
 
-                    /* update undelivered in mail pool */
-                    for (MailItem mailItem: iRobot.listMailItems()) {
+                    /* update undelivered in mail pool, members of a team all list the team's item */
+                    for (MailItem mailItem: new LinkedHashSet<>(iRobot.listMailItems())) {
                         unregisterUnloadedMailItem(mailItem);
                     }
 
@@ -158,7 +184,12 @@ public class MailPool implements IMailPool {
      *              mailItems to deliver
      */
     @Override
-	public void registerWaiting(Robot robot) {robots.add(robot);}
+	public void registerWaiting(Robot robot) {
+        if (InvariantChecker.checkOperation() && robots.contains(robot)) {
+            InvariantChecker.violated("%s registered waiting twice", robot.getId());
+        }
+        robots.add(robot);
+    }
 
 	/* ************************ added methods ****************************** */
     /**
@@ -178,9 +209,10 @@ public class MailPool implements IMailPool {
      * @param robot: robot is not waiting
      * */
 	private void unregisterWaitingRobot(Robot robot) {
-        assert robot != null;
-        assert robots.contains(robot);
-        robots.remove(robot);
+        /* remove() finds out anyway, so this is checked whenever checking is on */
+        if (!robots.remove(robot) && InvariantChecker.isEnabled()) {
+            InvariantChecker.violated("%s dispatched but not waiting", robot.getId());
+        }
     }
 
     /**
@@ -188,8 +220,123 @@ public class MailPool implements IMailPool {
      * @param mailItem: mail item is loaded to robot and delivering
      * */
     private void unregisterUnloadedMailItem(MailItem mailItem) {
-        assert mailItem != null;
-        assert pool.contains(mailItem);
-        pool.remove(mailItem);
+        if (pool.remove(mailItem)) {
+            LiveMetrics.poolChanged(priorityLevelOf(mailItem), -1);
+        } else if (InvariantChecker.isEnabled()) {
+            InvariantChecker.violated("%s loaded but not in the pool", mailItem);
+        }
+    }
+
+    /**
+     * The pool size, its first mail items and the waiting robots
+     * @return the description
+     */
+    @Override
+    public String describe() {
+        StringBuilder description = new StringBuilder(String.format("Pool: %d mail items", pool.size()));
+        for (MailItem mailItem: pool.subList(0, Math.min(DESCRIBED_MAIL_ITEMS, pool.size()))) {
+            description.append(System.lineSeparator()).append("  ").append(mailItem);
+        }
+        if (pool.size() > DESCRIBED_MAIL_ITEMS) {
+            description.append(System.lineSeparator()).append(String.format("  and %d more",
+                    pool.size() - DESCRIBED_MAIL_ITEMS));
+        }
+        description.append(System.lineSeparator()).append(String.format("Waiting: %d robots", robots.size()));
+        for (Robot robot: robots.subList(0, Math.min(DESCRIBED_MAIL_ITEMS, robots.size()))) {
+            description.append(' ').append(robot.getId());
+        }
+        if (robots.size() > DESCRIBED_MAIL_ITEMS) {
+            description.append(" and more");
+        }
+        return description.toString();
+    }
+
+    /**
+     * Check the pool, the waiting robots and the teams against the robots,
+     * in one pass over each after indexing the pool and the waiting robots:
+     * the pool is in order and holds no mail item twice or carried by a
+     * robot, the waiting robots are waiting in the mail room with nothing
+     * and are all the robots waiting, no robot carries more than it can, a
+     * mail item is carried by one robot or in the hands of all the robots
+     * of one team, on the same floor
+     * @param fleet: all robots in the building
+     */
+    @Override
+    public void checkInvariants(List<Robot> fleet) {
+        Set<MailItem> inPool = Collections.newSetFromMap(new IdentityHashMap<>(2 * pool.size()));
+        MailItemComparator comparator = new MailItemComparator();
+        for (int i = 0; i < pool.size(); i++) {
+            MailItem mailItem = pool.get(i);
+            if (!inPool.add(mailItem)) {
+                InvariantChecker.violated("%s is in the pool twice", mailItem);
+            }
+            if (i > 0 && comparator.compare(pool.get(i - 1), mailItem) > 0) {
+                InvariantChecker.violated("pool out of order at %d: %s before %s", i, pool.get(i - 1), mailItem);
+            }
+        }
+        Set<Robot> waiting = Collections.newSetFromMap(new IdentityHashMap<>(2 * robots.size()));
+        for (Robot robot: robots) {
+            if (!waiting.add(robot)) {
+                InvariantChecker.violated("%s is waiting twice", robot.getId());
+            }
+        }
+
+        /* the robot carrying each mail item, the first member for a team's item */
+        Map<MailItem, Robot> carriers = new IdentityHashMap<>();
+        Map<MailItem, Integer> teamMembers = new IdentityHashMap<>();
+        for (Robot robot: fleet) {
+            boolean isWaiting = robot.getRobotState() == RobotState.WAITING;
+            if (isWaiting != waiting.contains(robot)) {
+                InvariantChecker.violated("%s is %s but %sin the waiting robots", robot.getId(),
+                        robot.getRobotState(), isWaiting ? "not " : "");
+            }
+            List<MailItem> mailItems = robot.listMailItems();
+            if (isWaiting && (!mailItems.isEmpty() || robot.getFloor() != Building.MAILROOM_LOCATION)) {
+                InvariantChecker.violated("%s is waiting on floor %d with %s", robot.getId(), robot.getFloor(),
+                        mailItems);
+            }
+            for (int i = 0; i < mailItems.size(); i++) {
+                MailItem mailItem = mailItems.get(i);
+                /* the first item is in the hand, the second in the tube, which only holds what one robot can */
+                boolean inHand = i == 0;
+                TeamState teamState = inHand ? robot.getTeamState() : TeamState.SINGLE;
+                if (mailItem.getWeight() > teamState.validWeight()) {
+                    InvariantChecker.violated("%s %s carries %s", robot.getId(), teamState, mailItem);
+                }
+                if (inPool.contains(mailItem)) {
+                    InvariantChecker.violated("%s carries %s, which is in the pool", robot.getId(), mailItem);
+                }
+                Robot carrier = carriers.putIfAbsent(mailItem, robot);
+                if (carrier == null) {
+                    if (teamState != TeamState.SINGLE) {
+                        teamMembers.put(mailItem, 1);
+                    }
+                } else if (teamState == TeamState.SINGLE || !teamMembers.containsKey(mailItem) ||
+                        carrier.getTeamState() != teamState) {
+                    InvariantChecker.violated("%s and %s both carry %s", carrier.getId(), robot.getId(), mailItem);
+                } else if (carrier.getFloor() != robot.getFloor()) {
+                    InvariantChecker.violated("%s on floor %d and %s on floor %d carry %s as a team",
+                            carrier.getId(), carrier.getFloor(), robot.getId(), robot.getFloor(), mailItem);
+                } else {
+                    teamMembers.merge(mailItem, 1, Integer::sum);
+                }
+            }
+        }
+        for (Map.Entry<MailItem, Integer> team: teamMembers.entrySet()) {
+            Robot carrier = carriers.get(team.getKey());
+            int teamSize = carrier.getTeamState().ordinal() + 1;
+            if (team.getValue() != teamSize) {
+                InvariantChecker.violated("%d robots of a team of %d carry %s", team.getValue(), teamSize,
+                        team.getKey());
+            }
+        }
+    }
+
+    /**
+     * @param mailItem: a mail item
+     * @return its priority level, 0 for normal mail
+     * */
+    private static int priorityLevelOf(MailItem mailItem) {
+        return mailItem instanceof PriorityMailItem ? ((PriorityMailItem) mailItem).getPriorityLevel() : 0;
     }
 }
@@ -0,0 +1,60 @@
+package telemetry;
+
+import automail.MailItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * description: Records every decision of the mail pool into a
+ *              DecisionCorpusWriter, just before the mail item planner is
+ *              asked for a plan. When no file is open, a decision only
+ *              checks a field.
+ **/
+
+public class DecisionCorpus {
+    /**
+     * the file recorded into, null when not recording
+     */
+    private static DecisionCorpusWriter writer = null;
+
+    /**
+     * Start recording into a file, before a run starts
+     * @param fileName: the file, overwritten
+     * @throws IOException if the file can not be written
+     */
+    public static void open(String fileName) throws IOException {
+        close();
+        writer = new DecisionCorpusWriter(Paths.get(fileName));
+    }
+
+    /**
+     * Record the inputs of a plan
+     * @param tick: tick of the decision
+     * @param waitingRobots: robots waiting in the mail pool
+     * @param pool: the mail items in the pool, in mail pool order
+     */
+    public static void decided(int tick, int waitingRobots, List<MailItem> pool) {
+        if (writer != null) {
+            try {
+                writer.write(tick, waitingRobots, pool);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Stop recording and close the file, if one is open
+     * @throws IOException if the file can not be written
+     */
+    public static void close() throws IOException {
+        if (writer != null) {
+            DecisionCorpusWriter closing = writer;
+            writer = null;
+            closing.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package telemetry;
+
+import automail.MailItem;
+import automail.PriorityMailItem;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * description: Reads the decisions of a file written by the
+ *              DecisionCorpusWriter, rebuilding the pool of each. The mail
+ *              items are created again, once each, so they get new ids; a
+ *              mail item in the pools of several decisions is the same
+ *              object in each, as in the run.
+ *
+ *              Usage: java telemetry.DecisionCorpusReader <file>
+ *              prints how many decisions it holds, their ticks and pool depths.
+ **/
+
+public class DecisionCorpusReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * the inputs of the planner at one decision
+     */
+    public static class Decision {
+        private final int tick;
+        private final int waitingRobots;
+        private final List<MailItem> pool;
+
+        private Decision(int tick, int waitingRobots, List<MailItem> pool) {
+            this.tick = tick;
+            this.waitingRobots = waitingRobots;
+            this.pool = pool;
+        }
+
+        public int getTick() {return tick;}
+
+        public int getWaitingRobots() {return waitingRobots;}
+
+        /**
+         * @return the mail items in the pool, in mail pool order; not to be changed
+         */
+        public List<MailItem> getPool() {return pool;}
+    }
+
+    private final DataInputStream in;
+
+    /**
+     * the mail items by their recorded id
+     */
+    private final Map<Integer, MailItem> mailItems = new HashMap<>();
+
+    private List<MailItem> pool = new ArrayList<>();
+    private boolean ended = false;
+
+    /**
+     * Open a file and check its header
+     * @param path: the file
+     * @throws IOException if the file can not be read or holds no decisions
+     */
+    public DecisionCorpusReader(Path path) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(path), BUFFER_SIZE), BUFFER_SIZE));
+        try {
+            if (in.readInt() != DecisionCorpusWriter.MAGIC) {
+                throw new IOException(path + " holds no decisions");
+            }
+            int version = in.readInt();
+            if (version != DecisionCorpusWriter.VERSION) {
+                throw new IOException(path + " has version " + version);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the next decision, null at the end of the file
+     * @throws IOException if the file can not be read or is cut short
+     */
+    public Decision next() throws IOException {
+        while (!ended) {
+            int type = in.readUnsignedByte();
+            if (type == DecisionCorpusWriter.MAIL_ITEM) {
+                int id = readVarint();
+                int arrival = readVarint();
+                int floor = readVarint();
+                int weight = readVarint();
+                int priorityLevel = readVarint();
+                mailItems.put(id, priorityLevel == 0 ? new MailItem(floor, arrival, weight) :
+                        new PriorityMailItem(floor, arrival, weight, priorityLevel));
+            } else if (type == DecisionCorpusWriter.DELTA) {
+                int tick = readVarint();
+                int waitingRobots = readVarint();
+                List<MailItem> next = new ArrayList<>(pool.size());
+                int nRemoved = readVarint();
+                int from = 0;
+                int removed = 0;
+                for (int i = 0; i < nRemoved; i++) {
+                    removed += readVarint();
+                    next.addAll(pool.subList(from, removed));
+                    from = removed + 1;
+                }
+                next.addAll(pool.subList(from, pool.size()));
+                int nInserted = readVarint();
+                int position = 0;
+                for (int i = 0; i < nInserted; i++) {
+                    position += readVarint();
+                    next.add(position, mailItem(readVarint()));
+                }
+                pool = next;
+                return new Decision(tick, waitingRobots, pool);
+            } else if (type == DecisionCorpusWriter.FULL) {
+                int tick = readVarint();
+                int waitingRobots = readVarint();
+                int size = readVarint();
+                List<MailItem> next = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    next.add(mailItem(readVarint()));
+                }
+                pool = next;
+                return new Decision(tick, waitingRobots, pool);
+            } else if (type == DecisionCorpusWriter.END) {
+                ended = true;
+            } else {
+                throw new IOException("unknown record " + type);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param path: a file written by the DecisionCorpusWriter
+     * @return all its decisions, in order
+     * @throws IOException if the file can not be read
+     */
+    public static List<Decision> readAll(Path path) throws IOException {
+        List<Decision> decisions = new ArrayList<>();
+        try (DecisionCorpusReader reader = new DecisionCorpusReader(path)) {
+            Decision decision;
+            while ((decision = reader.next()) != null) {
+                decisions.add(decision);
+            }
+        }
+        return decisions;
+    }
+
+    private MailItem mailItem(int id) throws IOException {
+        MailItem mailItem = mailItems.get(id);
+        if (mailItem == null) {
+            throw new IOException("mail item " + id + " is not described");
+        }
+        return mailItem;
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    @Override
+    public void close() throws IOException {in.close();}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java telemetry.DecisionCorpusReader <file>");
+            System.exit(2);
+        }
+        long decisions = 0;
+        long mailItems = 0;
+        int firstTick = -1;
+        int lastTick = -1;
+        int deepest = 0;
+        try (DecisionCorpusReader reader = new DecisionCorpusReader(Paths.get(args[0]))) {
+            Decision decision;
+            while ((decision = reader.next()) != null) {
+                decisions++;
+                mailItems += decision.getPool().size();
+                deepest = Math.max(deepest, decision.getPool().size());
+                firstTick = firstTick < 0 ? decision.getTick() : firstTick;
+                lastTick = decision.getTick();
+            }
+        } catch (EOFException e) {
+            System.err.println("File cut short, the run did not finish");
+        }
+        System.out.printf("%d decisions from tick %d to %d, mean pool %.1f, deepest %d%n", decisions,
+                firstTick, lastTick, decisions == 0 ? 0.0 : (double) mailItems / decisions, deepest);
+    }
+}
@@ -0,0 +1,200 @@
+package telemetry;
+
+import automail.MailItem;
+import automail.PriorityMailItem;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * description: Writes the inputs of the mail item planner at each decision
+ *              of a run, the pool in mail pool order and the robots waiting,
+ *              for the DecisionCorpusReader to replay through any planner.
+ *              The pool changes little between decisions, so a decision is
+ *              written as the positions removed from the previous pool and
+ *              the mail items inserted into it, and a mail item is described
+ *              once, before its first decision. Numbers are unsigned
+ *              varints and the file is gzipped.
+ *
+ *              File: magic, version (ints), then records, each starting with
+ *              its type: MAIL_ITEM (id, arrival, floor, weight, priority
+ *              level), DELTA (tick, waiting robots, removed count and
+ *              positions, inserted count and position and id pairs, each
+ *              position relative to the one before) or FULL (tick, waiting
+ *              robots, pool size and ids), and END.
+ **/
+
+public class DecisionCorpusWriter implements Closeable {
+    static final int MAGIC = 0x31434441;  // "ADC1"
+    static final int VERSION = 1;
+
+    static final int MAIL_ITEM = 'M';
+    static final int DELTA = 'D';
+    static final int FULL = 'F';
+    static final int END = 'E';
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+
+    /**
+     * the mail items described so far and their ids
+     */
+    private final IdentityHashMap<MailItem, Integer> described = new IdentityHashMap<>();
+
+    /**
+     * the pool of the previous decision
+     */
+    private List<MailItem> previous = new ArrayList<>();
+
+    /**
+     * positions removed from the previous pool and inserted into the new one
+     */
+    private int[] removed = new int[16];
+    private int nRemoved = 0;
+    private int[] inserted = new int[16];
+    private int nInserted = 0;
+
+    private long decisions = 0;
+
+    /**
+     * @param path: the file, overwritten
+     * @throws IOException if the file can not be written
+     */
+    public DecisionCorpusWriter(Path path) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(path), BUFFER_SIZE), BUFFER_SIZE));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    /**
+     * Write a decision
+     * @param tick: tick of the decision
+     * @param waitingRobots: robots waiting in the mail pool
+     * @param pool: the mail items in the pool, in mail pool order
+     * @throws IOException if the file can not be written
+     */
+    public void write(int tick, int waitingRobots, List<MailItem> pool) throws IOException {
+        if (diff(pool)) {
+            out.writeByte(DELTA);
+            writeVarint(tick);
+            writeVarint(waitingRobots);
+            writeVarint(nRemoved);
+            int last = 0;
+            for (int i = 0; i < nRemoved; i++) {
+                writeVarint(removed[i] - last);
+                last = removed[i];
+            }
+            writeVarint(nInserted);
+            last = 0;
+            for (int i = 0; i < nInserted; i++) {
+                writeVarint(inserted[i] - last);
+                writeVarint(described.get(pool.get(inserted[i])));
+                last = inserted[i];
+            }
+        } else {
+            for (MailItem mailItem: pool) {
+                describe(mailItem);
+            }
+            out.writeByte(FULL);
+            writeVarint(tick);
+            writeVarint(waitingRobots);
+            writeVarint(pool.size());
+            for (MailItem mailItem: pool) {
+                writeVarint(described.get(mailItem));
+            }
+        }
+        previous = new ArrayList<>(pool);
+        decisions++;
+    }
+
+    /**
+     * Walk the new pool along the previous one, describing the new mail
+     * items on the way. A mail item at the same place in both is only
+     * compared, so a decision costs about a comparison per mail item.
+     * @param pool: the new pool
+     * @return false if the mail items kept from the previous pool changed
+     *         their order, so the pool can not be written as a delta
+     */
+    private boolean diff(List<MailItem> pool) throws IOException {
+        nRemoved = 0;
+        nInserted = 0;
+        int j = 0;
+        for (int i = 0; i < pool.size(); i++) {
+            MailItem mailItem = pool.get(i);
+            if (j < previous.size() && previous.get(j) == mailItem) {
+                j++;
+            } else if (describe(mailItem)) {
+                inserted = add(inserted, nInserted++, i);
+            } else {
+                while (j < previous.size() && previous.get(j) != mailItem) {
+                    removed = add(removed, nRemoved++, j++);
+                }
+                if (j == previous.size()) {
+                    return false;
+                }
+                j++;
+            }
+        }
+        while (j < previous.size()) {
+            removed = add(removed, nRemoved++, j++);
+        }
+        return true;
+    }
+
+    /**
+     * write a MAIL_ITEM record for a mail item not described yet
+     * @return true if it was not described yet
+     */
+    private boolean describe(MailItem mailItem) throws IOException {
+        if (described.containsKey(mailItem)) {
+            return false;
+        }
+        int id = mailItem.hashCode();
+        described.put(mailItem, id);
+        out.writeByte(MAIL_ITEM);
+        writeVarint(id);
+        writeVarint(mailItem.getArrivalTime());
+        writeVarint(mailItem.getDestinationFloor());
+        writeVarint(mailItem.getWeight());
+        writeVarint(mailItem instanceof PriorityMailItem ? ((PriorityMailItem) mailItem).getPriorityLevel() : 0);
+        return true;
+    }
+
+    private static int[] add(int[] positions, int index, int position) {
+        if (index == positions.length) {
+            positions = Arrays.copyOf(positions, 2 * index);
+        }
+        positions[index] = position;
+        return positions;
+    }
+
+    /**
+     * @return decisions written so far
+     */
+    public long getDecisions() {return decisions;}
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.writeByte(END);
+        out.close();
+    }
+}
@@ -0,0 +1,55 @@
+package telemetry;
+
+import automail.MailItem;
+import automail.PriorityMailItem;
+import jdk.jfr.*;
+
+/**
+ * description: JFR event of a mail item delivered and scored.
+ **/
+
+@Name("automail.Delivery")
+@Label("Delivery")
+@Category("Automail")
+@StackTrace(false)
+public class DeliveryEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Mail Id")
+    String mailId;
+
+    @Label("Destination Floor")
+    int destinationFloor;
+
+    @Label("Priority Level")
+    @Description("0 for normal mail")
+    int priorityLevel;
+
+    @Label("Latency")
+    @Description("ticks from arrival to delivery")
+    int latency;
+
+    @Label("Score")
+    double score;
+
+    /**
+     * Commit the event if it is recorded, the event is not allocated otherwise
+     * @param tick: current time
+     * @param mailItem: the delivered mail item
+     * @param score: score of the delivery
+     */
+    public static void commit(int tick, MailItem mailItem, double score) {
+        DeliveryEvent event = new DeliveryEvent();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.mailId = mailItem.getId();
+            event.destinationFloor = mailItem.getDestinationFloor();
+            event.priorityLevel = mailItem instanceof PriorityMailItem ?
+                    ((PriorityMailItem) mailItem).getPriorityLevel() : 0;
+            event.latency = tick - mailItem.getArrivalTime();
+            event.score = score;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package telemetry;
+
+import automail.Building;
+import automail.ExactSum;
+import automail.Trace;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * description: Distribution of delivery latency (delivery time - arrival time)
+ *              by priority class and by destination floor, with the score
+ *              each class contributes. Only a histogram and a score sum are
+ *              kept per class, so the memory does not grow with the number
+ *              of mail items delivered.
+ **/
+
+public class DeliveryLatency {
+    /**
+     * priority class of normal mail
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * latency and score of the deliveries in a class
+     */
+    private static class DeliveryClass {
+        private final Histogram latency = new Histogram();
+        private final ExactSum score = new ExactSum();
+    }
+
+    /**
+     * classes by priority level, NORMAL for normal mail
+     */
+    private final Map<Integer, DeliveryClass> byPriority = new TreeMap<>();
+
+    /**
+     * classes by destination floor, from Building.LOWEST_FLOOR
+     */
+    private final DeliveryClass[] byFloor;
+
+    /**
+     * score of all deliveries
+     */
+    private final ExactSum totalScore = new ExactSum();
+
+    /**
+     * @param floors: floors of the building
+     */
+    public DeliveryLatency(int floors) {
+        byFloor = new DeliveryClass[floors];
+        for (int i = 0; i < floors; i++) {
+            byFloor[i] = new DeliveryClass();
+        }
+    }
+
+    /**
+     * Record a delivery
+     * @param priorityLevel: priority level of the mail item, NORMAL for normal mail
+     * @param destinationFloor: floor the mail item was delivered to
+     * @param latency: ticks from arrival to delivery
+     * @param score: score of the delivery
+     */
+    public void record(int priorityLevel, int destinationFloor, int latency, double score) {
+        record(byPriority.computeIfAbsent(priorityLevel, level -> new DeliveryClass()), latency, score);
+        record(byFloor[destinationFloor - Building.LOWEST_FLOOR], latency, score);
+        totalScore.add(score);
+    }
+
+    private static void record(DeliveryClass deliveryClass, int latency, double score) {
+        deliveryClass.latency.record(latency);
+        deliveryClass.score.add(score);
+    }
+
+    /**
+     * Print p50, p90, p99, max and score share of every class to the trace
+     */
+    public void printReport() {
+        double total = totalScore.doubleValue();
+        Trace.printf("Delivery latency (ticks) %8s %6s %6s %6s %6s %12s%n",
+                "count", "p50", "p90", "p99", "max", "score share");
+        for (Map.Entry<Integer, DeliveryClass> entry: byPriority.entrySet()) {
+            printClass(entry.getKey() == NORMAL ? "normal" : "priority " + entry.getKey(), entry.getValue(), total);
+        }
+        for (int i = 0; i < byFloor.length; i++) {
+            if (byFloor[i].latency.getTotalCount() > 0) {
+                printClass("floor " + (i + Building.LOWEST_FLOOR), byFloor[i], total);
+            }
+        }
+    }
+
+    private static void printClass(String name, DeliveryClass deliveryClass, double totalScore) {
+        Histogram latency = deliveryClass.latency;
+        double share = totalScore == 0 ? 0 : 100 * deliveryClass.score.doubleValue() / totalScore;
+        Trace.printf("  %-22s %8d %6d %6d %6d %6d %11.2f%%%n", name, latency.getTotalCount(),
+                latency.valueAtPercentile(50), latency.valueAtPercentile(90), latency.valueAtPercentile(99),
+                latency.getMax(), share);
+    }
+}
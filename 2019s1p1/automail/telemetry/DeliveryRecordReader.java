@@ -0,0 +1,151 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * description: Streams the records of a file written by the
+ *              DeliveryRecordWriter through a fixed size buffer, so a file
+ *              of any size is read in constant memory. next() moves to the
+ *              next record and the getters read the current one.
+ *
+ *              Usage: java telemetry.DeliveryRecordReader <file>
+ *              prints the records as CSV.
+ **/
+
+public class DeliveryRecordReader implements Closeable {
+    private static final int BUFFER_RECORDS = 1 << 12;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+            BUFFER_RECORDS * DeliveryRecordWriter.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * position of the current record in the buffer, -1 before the first
+     */
+    private int current = -1;
+
+    /**
+     * Open a file and check its header
+     * @param path: the file
+     * @throws IOException if the file can not be read or holds no delivery records
+     */
+    public DeliveryRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            buffer.limit(DeliveryRecordWriter.HEADER_SIZE);
+            boolean hasHeader = fill(DeliveryRecordWriter.HEADER_SIZE);
+            buffer.flip();
+            if (!hasHeader || buffer.getInt() != DeliveryRecordWriter.MAGIC) {
+                throw new IOException(path + " holds no delivery records");
+            }
+            int version = buffer.getInt();
+            int recordSize = buffer.getInt();
+            if (version != DeliveryRecordWriter.VERSION || recordSize != DeliveryRecordWriter.RECORD_SIZE) {
+                throw new IOException(path + " has version " + version + " and records of " + recordSize + " bytes");
+            }
+            buffer.clear().limit(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Move to the next record
+     * @return false at the end of the file, a partly written last record is ignored
+     * @throws IOException if the file can not be read
+     */
+    public boolean next() throws IOException {
+        if (current >= 0) {
+            buffer.position(current + DeliveryRecordWriter.RECORD_SIZE);
+        }
+        if (buffer.remaining() < DeliveryRecordWriter.RECORD_SIZE) {
+            buffer.compact();
+            boolean hasRecord = fill(DeliveryRecordWriter.RECORD_SIZE);
+            buffer.flip();
+            if (!hasRecord) {
+                current = -1;
+                return false;
+            }
+        }
+        current = buffer.position();
+        return true;
+    }
+
+    /**
+     * read until the buffer holds at least the given bytes, or the file ends
+     * @param bytes: bytes needed
+     * @return true if the buffer holds them
+     */
+    private boolean fill(int bytes) throws IOException {
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getMailId() {return buffer.getInt(current);}
+
+    public int getArrivalTime() {return buffer.getInt(current + 4);}
+
+    public int getDeliveryTime() {return buffer.getInt(current + 8);}
+
+    public int getDestinationFloor() {return buffer.getInt(current + 12);}
+
+    public int getWeight() {return buffer.getInt(current + 16);}
+
+    /**
+     * @return priority level of the mail item, 0 for normal mail
+     */
+    public int getPriorityLevel() {return buffer.getInt(current + 20);}
+
+    /**
+     * @return number of the delivering robot, the first robot of a team, -1 if unknown
+     */
+    public int getRobotNumber() {return buffer.getInt(current + 24);}
+
+    /**
+     * @return robots which carried the mail item, 0 if unknown
+     */
+    public int getTeamSize() {return buffer.getInt(current + 28);}
+
+    public double getScore() {return buffer.getDouble(current + 32);}
+
+    /**
+     * Print the remaining records as CSV
+     * @param out: where to print
+     * @throws IOException if the file can not be read
+     */
+    public void writeCsv(PrintStream out) throws IOException {
+        out.println("mail_id,arrival,delivery,floor,weight,priority,robot,team_size,score");
+        while (next()) {
+            out.printf(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%d,%d,%.2f%n", getMailId(), getArrivalTime(),
+                    getDeliveryTime(), getDestinationFloor(), getWeight(), getPriorityLevel(), getRobotNumber(),
+                    getTeamSize(), getScore());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {channel.close();}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java telemetry.DeliveryRecordReader <file>");
+            System.exit(2);
+        }
+        try (DeliveryRecordReader reader = new DeliveryRecordReader(Paths.get(args[0]))) {
+            reader.writeCsv(System.out);
+        }
+    }
+}
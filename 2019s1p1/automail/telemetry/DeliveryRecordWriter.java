@@ -0,0 +1,104 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: Writes one fixed width record per delivered mail item to a
+ *              file through a buffered FileChannel. The buffer is written
+ *              out when full and at least once a second, so a run which is
+ *              killed loses at most a second of records.
+ *
+ *              File: magic, version and record size (ints), then the
+ *              records. Record: mail id, arrival tick, delivery tick,
+ *              destination floor, weight, priority level (0 for normal),
+ *              robot number (-1 if unknown), team size (0 if unknown), all
+ *              ints, then the score (double). All little endian.
+ **/
+
+public class DeliveryRecordWriter implements Closeable {
+    static final int MAGIC = 0x31524441;  // "ADR1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 3 * Integer.BYTES;
+    static final int RECORD_SIZE = 8 * Integer.BYTES + Double.BYTES;
+
+    private static final int BUFFER_RECORDS = 1 << 12;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer =
+            ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long lastFlushNanos = System.nanoTime();
+    private long records = 0;
+
+    /**
+     * Create or overwrite the file, and write the header
+     * @param path: the file
+     * @throws IOException if the file can not be written
+     */
+    public DeliveryRecordWriter(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE);
+    }
+
+    /**
+     * Record a delivery
+     * @param mailId: id of the mail item
+     * @param arrivalTime: tick the mail item arrived
+     * @param deliveryTime: tick the mail item was delivered
+     * @param destinationFloor: floor the mail item was delivered to
+     * @param weight: weight of the mail item
+     * @param priorityLevel: priority level of the mail item, 0 for normal mail
+     * @param robotNumber: number of the delivering robot, -1 if unknown
+     * @param teamSize: robots carrying the mail item, 0 if unknown
+     * @param score: score of the delivery
+     */
+    public void write(int mailId, int arrivalTime, int deliveryTime, int destinationFloor, int weight,
+                      int priorityLevel, int robotNumber, int teamSize, double score) {
+        buffer.putInt(mailId).putInt(arrivalTime).putInt(deliveryTime).putInt(destinationFloor).putInt(weight)
+                .putInt(priorityLevel).putInt(robotNumber).putInt(teamSize).putDouble(score);
+        records++;
+        if (buffer.remaining() < RECORD_SIZE || System.nanoTime() - lastFlushNanos > FLUSH_INTERVAL_NANOS) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return records written so far
+     */
+    public long getRecords() {return records;}
+
+    /**
+     * Write out the buffered records
+     * @throws IOException if the file can not be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlushNanos = System.nanoTime();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
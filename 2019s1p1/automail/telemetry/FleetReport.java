@@ -0,0 +1,98 @@
+package telemetry;
+
+import automail.Robot;
+import automail.RobotState;
+import automail.TeamState;
+import automail.Trace;
+
+import java.util.List;
+
+/**
+ * description: Prints the RobotStats of every robot and of the whole fleet:
+ *              ticks in each RobotState and TeamState, floors travelled
+ *              loaded and empty, items per trip, teams formed by size and
+ *              ticks lost to the slowness of teams.
+ **/
+
+public class FleetReport {
+    /**
+     * team sizes teams can have
+     */
+    private static final TeamState[] TEAMS = {TeamState.DOUBLE, TeamState.TRIPLE};
+
+    /**
+     * Print the report to the trace
+     * @param robots: all robots of the simulation
+     * @param now: current time
+     */
+    public static void print(List<Robot> robots, int now) {
+        RobotState[] states = RobotState.values();
+        TeamState[] teamStates = {TeamState.SINGLE, TeamState.DOUBLE, TeamState.TRIPLE};
+
+        long[] ticksInState = new long[states.length];
+        long[] ticksInTeamState = new long[teamStates.length];
+        long[] teamsJoined = new long[TEAMS.length];
+        long loaded = 0;
+        long empty = 0;
+        long handOnly = 0;
+        long handAndTube = 0;
+        long lostToTeam = 0;
+        for (Robot robot: robots) {
+            RobotStats stats = robot.getStats();
+            for (int i = 0; i < states.length; i++) {
+                ticksInState[i] += stats.ticksIn(states[i], now);
+            }
+            for (int i = 0; i < teamStates.length; i++) {
+                ticksInTeamState[i] += stats.ticksIn(teamStates[i], now);
+            }
+            for (int i = 0; i < TEAMS.length; i++) {
+                teamsJoined[i] += stats.teamsJoined(TEAMS[i]);
+            }
+            loaded += stats.getFloorsTravelledLoaded();
+            empty += stats.getFloorsTravelledEmpty();
+            handOnly += stats.getHandOnlyTrips();
+            handAndTube += stats.getHandAndTubeTrips();
+            lostToTeam += stats.getTicksLostToTeam();
+        }
+
+        long robotTicks = (long) robots.size() * now;
+        Trace.printf("Fleet: %d robots, %d robot ticks%n", robots.size(), robotTicks);
+        for (int i = 0; i < states.length; i++) {
+            Trace.printf("  %-28s %12d %6.2f%%%n", "ticks " + states[i], ticksInState[i],
+                    percent(ticksInState[i], robotTicks));
+        }
+        for (int i = 0; i < teamStates.length; i++) {
+            Trace.printf("  %-28s %12d %6.2f%%%n", "ticks " + teamStates[i], ticksInTeamState[i],
+                    percent(ticksInTeamState[i], robotTicks));
+        }
+        Trace.printf("  %-28s %12d %6.2f%%%n", "floors travelled loaded", loaded, percent(loaded, loaded + empty));
+        Trace.printf("  %-28s %12d %6.2f%%%n", "floors travelled empty", empty, percent(empty, loaded + empty));
+        Trace.printf("  %-28s %12d %6.2f%%%n", "trips hand only", handOnly, percent(handOnly, handOnly + handAndTube));
+        Trace.printf("  %-28s %12d %6.2f%%%n", "trips hand and tube", handAndTube,
+                percent(handAndTube, handOnly + handAndTube));
+        Trace.printf("  %-28s %12.2f%n", "items per trip",
+                handOnly + handAndTube == 0 ? 0.0 : (double) (handOnly + 2 * handAndTube) / (handOnly + handAndTube));
+        for (int i = 0; i < TEAMS.length; i++) {
+            /* every member of a team counts joining it */
+            Trace.printf("  %-28s %12d%n", "teams formed of " + (i + 2), teamsJoined[i] / (i + 2));
+        }
+        Trace.printf("  %-28s %12d %6.2f%%%n", "ticks lost to team slowness", lostToTeam,
+                percent(lostToTeam, robotTicks));
+
+        Trace.printf("%-8s %10s %10s %10s %8s %8s %8s %8s %8s %6s %6s %6s %6s %6s%n", "Robot", "DELIVERING",
+                "RETURNING", "WAITING", "SINGLE", "DOUBLE", "TRIPLE", "loaded", "empty", "hand", "+tube", "team2",
+                "team3", "slow");
+        for (Robot robot: robots) {
+            RobotStats stats = robot.getStats();
+            Trace.printf("%-8s %10d %10d %10d %8d %8d %8d %8d %8d %6d %6d %6d %6d %6d%n", robot.getId(),
+                    stats.ticksIn(RobotState.DELIVERING, now), stats.ticksIn(RobotState.RETURNING, now),
+                    stats.ticksIn(RobotState.WAITING, now), stats.ticksIn(TeamState.SINGLE, now),
+                    stats.ticksIn(TeamState.DOUBLE, now), stats.ticksIn(TeamState.TRIPLE, now),
+                    stats.getFloorsTravelledLoaded(), stats.getFloorsTravelledEmpty(), stats.getHandOnlyTrips(),
+                    stats.getHandAndTubeTrips(), stats.teamsJoined(TeamState.DOUBLE),
+                    stats.teamsJoined(TeamState.TRIPLE), stats.getTicksLostToTeam());
+        }
+    }
+
+    private static double percent(long part, long whole) {return whole == 0 ? 0 : 100.0 * part / whole;}
+}
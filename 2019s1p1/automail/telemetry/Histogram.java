@@ -0,0 +1,137 @@
+package telemetry;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * description: Log-linear histogram of non-negative longs. Values below
+ *              2 * SUB_BUCKETS are counted exactly; above that every power of
+ *              two is split into SUB_BUCKETS linear buckets, so a recorded
+ *              value is known within 1 / SUB_BUCKETS of itself. Buckets are
+ *              allocated up to the largest value recorded, so the memory
+ *              depends on the range of values and not on how many there are.
+ *              Recording is a few shifts and an array increment. Not thread
+ *              safe, each histogram has a single writer.
+ **/
+
+public class Histogram {
+    /**
+     * linear buckets per power of two
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * enough buckets for Long.MAX_VALUE
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * counts by bucket, grown when a larger value is recorded
+     */
+    private long[] counts = new long[2 * SUB_BUCKETS];
+    private long totalCount = 0;
+    private long max = 0;
+
+    /**
+     * @param value: a non-negative value, negative values are counted as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int bucket = bucketOf(value);
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.min(BUCKETS, Math.max(bucket + 1, 2 * counts.length)));
+        }
+        counts[bucket]++;
+        totalCount++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * @param other: a histogram whose counts are added to this one
+     */
+    public void add(Histogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * forget all recorded values
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+
+    public long getTotalCount() {return totalCount;}
+
+    public long getMax() {return max;}
+
+    /**
+     * @param percentile: between 0 and 100
+     * @return the highest value of the bucket holding the percentile, at most the max
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Write the non-empty buckets, one "name,lowest,highest,count" line each
+     * @param name: first column of the lines
+     * @param out: the stream to write to
+     */
+    public void writeBuckets(String name, PrintStream out) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                out.printf("%s,%d,%d,%d%n", name, lowestValueOf(i), highestValueOf(i), counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @param value: a non-negative value
+     * @return index of its bucket
+     */
+    private static int bucketOf(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long lowestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long) (bucket % SUB_BUCKETS + SUB_BUCKETS + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,219 @@
+package telemetry;
+
+import automail.RobotState;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * description: Metrics of a running simulation, read by the MetricsServer
+ *              while the simulation runs and by the TickSeries every tick. The tick, the pool and the score
+ *              have a single writer, which publishes them with lazySet and
+ *              never waits for a reader. Robot states may change on the
+ *              threads stepping robots in parallel, so they are LongAdders.
+ *              When disabled, every update only checks a flag.
+ **/
+
+public class LiveMetrics {
+    /**
+     * upper bounds of the tick time histogram buckets in nanoseconds, 1-2.5-5 steps from 1 us to 10 s
+     */
+    static final long[] TICK_BUCKET_BOUNDS = {
+            1_000L, 2_500L, 5_000L, 10_000L, 25_000L, 50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L,
+            250_000_000L, 500_000_000L, 1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L};
+
+    /**
+     * priority levels of priority mail are 10 to 100 in steps of 10, normal mail is 0
+     */
+    static final int PRIORITY_STEP = 10;
+    static final int PRIORITY_CLASSES = 11;
+
+    /**
+     * window the delivery rate is measured over
+     */
+    static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private static boolean enabled = false;
+
+    /* ------------------------- written by the clock ------------------------- */
+
+    private static final AtomicLong tick = new AtomicLong();
+
+    /**
+     * end of the previous tick, only used by the clock
+     */
+    private static long lastTickEnd;
+
+    /**
+     * ticks by TICK_BUCKET_BOUNDS bucket, the last one for longer ticks
+     */
+    private static final AtomicLongArray tickBuckets = new AtomicLongArray(TICK_BUCKET_BOUNDS.length + 1);
+    private static final AtomicLong tickNanosSum = new AtomicLong();
+
+    /**
+     * start of the current rate window and the deliveries then, only used by the clock
+     */
+    private static long windowStart;
+    private static long windowStartDeliveries;
+
+    /**
+     * deliveries per second over the last full window, as double bits
+     */
+    private static final AtomicLong deliveryRateBits = new AtomicLong();
+
+    /* ---------------------- written by the mail pool ----------------------- */
+
+    /**
+     * mail items in the pool by priority level / PRIORITY_STEP
+     */
+    private static final AtomicLongArray poolDepth = new AtomicLongArray(PRIORITY_CLASSES);
+
+    /**
+     * robots and robot teams sent off
+     */
+    private static final AtomicLong dispatches = new AtomicLong();
+
+    /* ----------------------- written by the delivery ----------------------- */
+
+    private static final AtomicLong deliveries = new AtomicLong();
+
+    /**
+     * running score as double bits
+     */
+    private static final AtomicLong scoreBits = new AtomicLong();
+
+    /* ----------------------- written by any robot -------------------------- */
+
+    private static final LongAdder[] robotsInState = new LongAdder[RobotState.values().length];
+
+    static {
+        for (int i = 0; i < robotsInState.length; i++) {
+            robotsInState[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Clear all metrics and turn them on or off, before a run starts
+     * @param enabled: true to update the metrics
+     */
+    public static void reset(boolean enabled) {
+        tick.set(0);
+        lastTickEnd = System.nanoTime();
+        for (int i = 0; i < tickBuckets.length(); i++) {
+            tickBuckets.set(i, 0);
+        }
+        tickNanosSum.set(0);
+        windowStart = lastTickEnd;
+        windowStartDeliveries = 0;
+        deliveryRateBits.set(Double.doubleToRawLongBits(0));
+        for (int i = 0; i < poolDepth.length(); i++) {
+            poolDepth.set(i, 0);
+        }
+        dispatches.set(0);
+        deliveries.set(0);
+        scoreBits.set(Double.doubleToRawLongBits(0));
+        for (LongAdder robots: robotsInState) {
+            robots.reset();
+        }
+        LiveMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {return enabled;}
+
+    /**
+     * The clock ticked
+     * @param time: the new time
+     */
+    public static void ticked(int time) {
+        if (enabled) {
+            long now = System.nanoTime();
+            long nanos = now - lastTickEnd;
+            lastTickEnd = now;
+            int bucket = 0;
+            while (bucket < TICK_BUCKET_BOUNDS.length && nanos > TICK_BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            tickBuckets.lazySet(bucket, tickBuckets.get(bucket) + 1);
+            tickNanosSum.lazySet(tickNanosSum.get() + nanos);
+            if (now - windowStart >= RATE_WINDOW_NANOS) {
+                long windowDeliveries = deliveries.get();
+                deliveryRateBits.lazySet(Double.doubleToRawLongBits(
+                        (windowDeliveries - windowStartDeliveries) * 1e9 / (now - windowStart)));
+                windowStart = now;
+                windowStartDeliveries = windowDeliveries;
+            }
+            tick.lazySet(time);
+        }
+    }
+
+    /**
+     * A mail item entered (+1) or left (-1) the pool
+     * @param priorityLevel: priority level of the mail item, 0 for normal mail
+     * @param change: +1 or -1
+     */
+    public static void poolChanged(int priorityLevel, int change) {
+        if (enabled) {
+            int priorityClass = priorityLevel / PRIORITY_STEP;
+            poolDepth.lazySet(priorityClass, poolDepth.get(priorityClass) + change);
+        }
+    }
+
+    /**
+     * A robot or robot team was sent off with mail
+     */
+    public static void dispatched() {
+        if (enabled) {
+            dispatches.lazySet(dispatches.get() + 1);
+        }
+    }
+
+    /**
+     * A robot entered a state, and left its previous one
+     * @param previous: the state left, null for a new robot
+     * @param next: the state entered
+     */
+    public static void robotStateChanged(RobotState previous, RobotState next) {
+        if (enabled) {
+            if (previous != null) {
+                robotsInState[previous.ordinal()].decrement();
+            }
+            robotsInState[next.ordinal()].increment();
+        }
+    }
+
+    /**
+     * A mail item was delivered
+     * @param score: score of the delivery
+     */
+    public static void delivered(double score) {
+        if (enabled) {
+            deliveries.lazySet(deliveries.get() + 1);
+            scoreBits.lazySet(Double.doubleToRawLongBits(Double.longBitsToDouble(scoreBits.get()) + score));
+        }
+    }
+
+    /* -------------------------------- readers ------------------------------- */
+
+    static long tick() {return tick.get();}
+
+    static long tickBucket(int bucket) {return tickBuckets.get(bucket);}
+
+    static long tickNanosSum() {return tickNanosSum.get();}
+
+    static long poolDepth(int priorityClass) {return poolDepth.get(priorityClass);}
+
+    static long robotsIn(RobotState robotState) {return robotsInState[robotState.ordinal()].sum();}
+
+    static long dispatches() {return dispatches.get();}
+
+    static long deliveries() {return deliveries.get();}
+
+    /**
+     * @return deliveries per second over the last full rate window, the same for every reader
+     */
+    static double deliveryRate() {return Double.longBitsToDouble(deliveryRateBits.get());}
+
+    static double score() {return Double.longBitsToDouble(scoreBits.get());}
+}
@@ -0,0 +1,55 @@
+package telemetry;
+
+import automail.MailItem;
+import automail.PriorityMailItem;
+import jdk.jfr.*;
+
+/**
+ * description: JFR event of a mail item arriving at the mail pool.
+ **/
+
+@Name("automail.MailArrival")
+@Label("Mail Arrival")
+@Category("Automail")
+@StackTrace(false)
+public class MailArrivalEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Mail Id")
+    String mailId;
+
+    @Label("Destination Floor")
+    int destinationFloor;
+
+    @Label("Weight")
+    int weight;
+
+    @Label("Priority Level")
+    @Description("0 for normal mail")
+    int priorityLevel;
+
+    @Label("Pool Size")
+    @Description("mail items in the pool after the arrival")
+    int poolSize;
+
+    /**
+     * Commit the event if it is recorded, the event is not allocated otherwise
+     * @param tick: current time
+     * @param mailItem: the arriving mail item
+     * @param poolSize: mail items in the pool after the arrival
+     */
+    public static void commit(int tick, MailItem mailItem, int poolSize) {
+        MailArrivalEvent event = new MailArrivalEvent();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.mailId = mailItem.getId();
+            event.destinationFloor = mailItem.getDestinationFloor();
+            event.weight = mailItem.getWeight();
+            event.priorityLevel = mailItem instanceof PriorityMailItem ?
+                    ((PriorityMailItem) mailItem).getPriorityLevel() : 0;
+            event.poolSize = poolSize;
+            event.commit();
+        }
+    }
+}
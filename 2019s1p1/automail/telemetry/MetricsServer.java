@@ -0,0 +1,117 @@
+package telemetry;
+
+import automail.RobotState;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * description: Serves the LiveMetrics at /metrics in the Prometheus text
+ *              format, on the loopback interface only. Scrapes are answered
+ *              on the server's own thread and only read the metrics, so a
+ *              scrape never holds up a tick, and a scrape does not change
+ *              what the next one reads.
+ **/
+
+public class MetricsServer {
+    private final HttpServer server;
+
+    /**
+     * Start serving on the loopback interface
+     * @param port: the port, 0 for any free port
+     * @throws IOException if the port can not be bound
+     */
+    public MetricsServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::scrape);
+        server.start();
+    }
+
+    /**
+     * @return the port served on
+     */
+    public int getPort() {return server.getAddress().getPort();}
+
+    /**
+     * Stop serving
+     */
+    public void stop() {server.stop(0);}
+
+    /**
+     * answer a scrape, only called on the server's thread
+     * @param exchange: the request
+     */
+    private void scrape(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * @return the metrics in the Prometheus text format
+     */
+    String render() {
+        StringBuilder text = new StringBuilder();
+        gauge(text, "automail_tick", "Current simulation tick", LiveMetrics.tick());
+
+        text.append("# HELP automail_pool_depth Mail items waiting in the mail pool\n");
+        text.append("# TYPE automail_pool_depth gauge\n");
+        for (int i = 0; i < LiveMetrics.PRIORITY_CLASSES; i++) {
+            text.append("automail_pool_depth{priority=\"")
+                    .append(i == 0 ? "normal" : String.valueOf(i * LiveMetrics.PRIORITY_STEP)).append("\"} ")
+                    .append(LiveMetrics.poolDepth(i)).append('\n');
+        }
+
+        text.append("# HELP automail_robots Robots in each state\n");
+        text.append("# TYPE automail_robots gauge\n");
+        for (RobotState robotState: RobotState.values()) {
+            text.append("automail_robots{state=\"").append(robotState).append("\"} ")
+                    .append(LiveMetrics.robotsIn(robotState)).append('\n');
+        }
+
+        text.append("# HELP automail_dispatches_total Robots and robot teams sent off\n");
+        text.append("# TYPE automail_dispatches_total counter\n");
+        text.append("automail_dispatches_total ").append(LiveMetrics.dispatches()).append('\n');
+
+        text.append("# HELP automail_deliveries_total Mail items delivered\n");
+        text.append("# TYPE automail_deliveries_total counter\n");
+        text.append("automail_deliveries_total ").append(LiveMetrics.deliveries()).append('\n');
+        /* the same for every scraper, a scraper wanting its own interval applies rate() to the counter */
+        gauge(text, "automail_deliveries_per_second", "Deliveries per second over the last second of ticks",
+                LiveMetrics.deliveryRate());
+        gauge(text, "automail_score", "Running score of the deliveries so far", LiveMetrics.score());
+
+        text.append("# HELP automail_tick_seconds Wall time of a tick\n");
+        text.append("# TYPE automail_tick_seconds histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < LiveMetrics.TICK_BUCKET_BOUNDS.length; i++) {
+            cumulative += LiveMetrics.tickBucket(i);
+            text.append("automail_tick_seconds_bucket{le=\"").append(seconds(LiveMetrics.TICK_BUCKET_BOUNDS[i]))
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += LiveMetrics.tickBucket(LiveMetrics.TICK_BUCKET_BOUNDS.length);
+        text.append("automail_tick_seconds_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        text.append("automail_tick_seconds_sum ").append(seconds(LiveMetrics.tickNanosSum())).append('\n');
+        text.append("automail_tick_seconds_count ").append(cumulative).append('\n');
+        return text.toString();
+    }
+
+    private static void gauge(StringBuilder text, String name, String help, Object value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" gauge\n");
+        text.append(name).append(' ').append(value instanceof Double ?
+                String.format(Locale.ROOT, "%.3f", (Double) value) : value).append('\n');
+    }
+
+    private static String seconds(long nanos) {return BigDecimal.valueOf(nanos, 9).stripTrailingZeros().toPlainString();}
+}
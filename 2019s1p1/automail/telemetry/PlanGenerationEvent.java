@@ -0,0 +1,43 @@
+package telemetry;
+
+import jdk.jfr.*;
+
+/**
+ * description: JFR event timing one plan generated by MailPool.step.
+ **/
+
+@Name("automail.PlanGeneration")
+@Label("Plan Generation")
+@Category("Automail")
+@StackTrace(false)
+public class PlanGenerationEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Pool Size")
+    int poolSize;
+
+    @Label("Plan Size")
+    @Description("mail items in the plan, 0 if there is nothing to deliver")
+    int planSize;
+
+    @Label("Waiting Robots")
+    int waitingRobots;
+
+    /**
+     * Commit the event started with begin() if it is recorded
+     * @param tick: current time
+     * @param poolSize: mail items in the pool
+     * @param planSize: mail items in the plan
+     * @param waitingRobots: robots waiting at the mail pool
+     */
+    public void commit(int tick, int poolSize, int planSize, int waitingRobots) {
+        if (shouldCommit()) {
+            this.tick = tick;
+            this.poolSize = poolSize;
+            this.planSize = planSize;
+            this.waitingRobots = waitingRobots;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package telemetry;
+
+import automail.RobotState;
+import jdk.jfr.*;
+
+/**
+ * description: JFR event of a robot changing its RobotState.
+ **/
+
+@Name("automail.RobotStateChange")
+@Label("Robot State Change")
+@Category("Automail")
+@StackTrace(false)
+public class RobotStateChangeEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Robot Id")
+    String robotId;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+
+    @Label("Floor")
+    int floor;
+
+    /**
+     * Commit the event if it is recorded, the event is not allocated otherwise
+     * @param tick: current time
+     * @param robotId: id of the robot
+     * @param from: state before
+     * @param to: state after
+     * @param floor: floor the robot is at
+     */
+    public static void commit(int tick, String robotId, RobotState from, RobotState to, int floor) {
+        RobotStateChangeEvent event = new RobotStateChangeEvent();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.robotId = robotId;
+            event.from = from.name();
+            event.to = to.name();
+            event.floor = floor;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package telemetry;
+
+import automail.RobotState;
+import automail.TeamState;
+
+/**
+ * description: Utilization and travel counters of one robot, updated by the
+ *              robot as it changes state, moves and starts trips. Time in a
+ *              state is counted from the time the state was entered, so a
+ *              robot parked while waiting needs no update per tick.
+ **/
+
+public class RobotStats {
+    private static final int ROBOT_STATES = RobotState.values().length;
+    private static final int TEAM_STATES = TeamState.values().length;
+
+    /**
+     * ticks spent in each RobotState before the current one, by ordinal
+     */
+    private final long[] ticksInState = new long[ROBOT_STATES];
+    private RobotState state;
+    private int stateSince;
+
+    /**
+     * ticks spent in each TeamState before the current one, by ordinal
+     */
+    private final long[] ticksInTeamState = new long[TEAM_STATES];
+    private TeamState teamState;
+    private int teamStateSince;
+
+    /**
+     * teams joined, by the TeamState of the team
+     */
+    private final long[] teamsJoined = new long[TEAM_STATES];
+
+    private long floorsTravelledLoaded = 0;
+    private long floorsTravelledEmpty = 0;
+    private long handOnlyTrips = 0;
+    private long handAndTubeTrips = 0;
+
+    /**
+     * ticks waited for the slower team to move
+     */
+    private long ticksLostToTeam = 0;
+
+    /**
+     * @param state: state the robot starts in
+     * @param teamState: team state the robot starts in
+     * @param now: current time
+     */
+    public RobotStats(RobotState state, TeamState teamState, int now) {
+        this.state = state;
+        this.stateSince = now;
+        this.teamState = teamState;
+        this.teamStateSince = now;
+    }
+
+    /**
+     * @param nextState: the state the robot changes to
+     * @param now: current time
+     */
+    public void changeState(RobotState nextState, int now) {
+        if (nextState != state) {
+            ticksInState[state.ordinal()] += now - stateSince;
+            state = nextState;
+            stateSince = now;
+        }
+    }
+
+    /**
+     * @param nextTeamState: the team state the robot changes to, joining a team if it is not SINGLE
+     * @param now: current time
+     */
+    public void changeTeamState(TeamState nextTeamState, int now) {
+        if (nextTeamState != teamState) {
+            ticksInTeamState[teamState.ordinal()] += now - teamStateSince;
+            teamState = nextTeamState;
+            teamStateSince = now;
+            if (nextTeamState != TeamState.SINGLE) {
+                teamsJoined[nextTeamState.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * @param loaded: true if the robot carried mail while moving a floor
+     */
+    public void travelledFloor(boolean loaded) {
+        if (loaded) {
+            floorsTravelledLoaded++;
+        } else {
+            floorsTravelledEmpty++;
+        }
+    }
+
+    /**
+     * @param withTube: true if the robot starts a trip with an item in its tube as well as its hand
+     */
+    public void startedTrip(boolean withTube) {
+        if (withTube) {
+            handAndTubeTrips++;
+        } else {
+            handOnlyTrips++;
+        }
+    }
+
+    /**
+     * the robot's team did not move this tick because of its slowness
+     */
+    public void lostTickToTeam() {ticksLostToTeam++;}
+
+    /**
+     * @param robotState: a state
+     * @param now: current time
+     * @return ticks spent in the state up to now
+     */
+    public long ticksIn(RobotState robotState, int now) {
+        return ticksInState[robotState.ordinal()] + (robotState == state ? now - stateSince : 0);
+    }
+
+    /**
+     * @param teamState: a team state
+     * @param now: current time
+     * @return ticks spent in the team state up to now
+     */
+    public long ticksIn(TeamState teamState, int now) {
+        return ticksInTeamState[teamState.ordinal()] + (teamState == this.teamState ? now - teamStateSince : 0);
+    }
+
+    /**
+     * @param teamState: DOUBLE or TRIPLE
+     * @return number of teams of that size joined
+     */
+    public long teamsJoined(TeamState teamState) {return teamsJoined[teamState.ordinal()];}
+
+    public long getFloorsTravelledLoaded() {return floorsTravelledLoaded;}
+
+    public long getFloorsTravelledEmpty() {return floorsTravelledEmpty;}
+
+    public long getHandOnlyTrips() {return handOnlyTrips;}
+
+    public long getHandAndTubeTrips() {return handAndTubeTrips;}
+
+    public long getTicksLostToTeam() {return ticksLostToTeam;}
+}
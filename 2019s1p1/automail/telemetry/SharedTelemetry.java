@@ -0,0 +1,180 @@
+package telemetry;
+
+import automail.RobotState;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * description: Publishes the state of a running simulation in a memory
+ *              mapped file, for a monitor in another process to read with a
+ *              SharedTelemetryReader. The file holds a snapshot of the tick,
+ *              the pool depth and the robot states, guarded by a seqlock and
+ *              rewritten every tick, and a ring of the latest deliveries,
+ *              each slot stamped with the sequence number of its delivery.
+ *              Readers only ever read the file, so the simulation never
+ *              waits for them, it only writes memory.
+ *
+ *              File, little endian: magic, version, ring slots, slot size
+ *              (ints) at 0, deliveries published (long) at RING_HEAD, the
+ *              snapshot at SNAPSHOT and the ring slots from RING.
+ **/
+
+public class SharedTelemetry {
+    static final int MAGIC = 0x31544d41;  // "AMT1"
+    static final int VERSION = 1;
+    static final int RING_SLOTS = 4096;
+
+    /**
+     * deliveries published so far, on its own cache line
+     */
+    static final int RING_HEAD = 64;
+
+    /**
+     * snapshot: sequence, odd while it is written, then the fields
+     */
+    static final int SNAPSHOT = 128;
+    static final int SNAPSHOT_SEQUENCE = SNAPSHOT;
+    static final int SNAPSHOT_STATE = SNAPSHOT + 8;
+    static final int SNAPSHOT_UPDATED_MILLIS = SNAPSHOT + 16;
+    static final int SNAPSHOT_TICK = SNAPSHOT + 24;
+    static final int SNAPSHOT_POOL_DEPTH = SNAPSHOT + 32;
+    static final int SNAPSHOT_PRIORITY_DEPTH = SNAPSHOT + 40;
+    static final int SNAPSHOT_WAITING = SNAPSHOT + 48;
+    static final int SNAPSHOT_DELIVERING = SNAPSHOT + 56;
+    static final int SNAPSHOT_RETURNING = SNAPSHOT + 64;
+    static final int SNAPSHOT_DELIVERIES = SNAPSHOT + 72;
+    static final int SNAPSHOT_SCORE = SNAPSHOT + 80;
+
+    /**
+     * slot: sequence number of its delivery (-1 while it is written), tick, mail id, floor, priority level, score
+     */
+    static final int RING = 256;
+    static final int SLOT_SIZE = 32;
+    static final int SLOT_TICK = 8;
+    static final int SLOT_MAIL_ID = 12;
+    static final int SLOT_FLOOR = 16;
+    static final int SLOT_PRIORITY = 20;
+    static final int SLOT_SCORE = 24;
+
+    static final int FILE_SIZE = RING + RING_SLOTS * SLOT_SIZE;
+
+    /**
+     * values of SNAPSHOT_STATE
+     */
+    static final long STATE_RUNNING = 1;
+    static final long STATE_FINISHED = 2;
+
+    /**
+     * ordered access to the longs of the mapping, which is page aligned
+     */
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * the mapped file, null when not publishing
+     */
+    private static MappedByteBuffer shared = null;
+    private static long deliveries = 0;
+
+    /**
+     * Start publishing into a file, before a run starts
+     * @param fileName: the file, created if needed
+     * @throws IOException if the file can not be mapped
+     */
+    public static void open(String fileName) throws IOException {
+        close();
+        /* not truncated, a monitor may already have it mapped */
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            shared = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+        shared.order(ByteOrder.LITTLE_ENDIAN);
+        deliveries = 0;
+        long sequence = (long) LONGS.getAcquire(shared, SNAPSHOT_SEQUENCE);
+        /* an odd sequence keeps readers off the snapshot until the first tick */
+        LONGS.setOpaque(shared, SNAPSHOT_SEQUENCE, sequence | 1);
+        VarHandle.storeStoreFence();
+        for (int i = SNAPSHOT_STATE; i < FILE_SIZE; i += Long.BYTES) {
+            shared.putLong(i, i >= RING && (i - RING) % SLOT_SIZE == 0 ? -1 : 0);
+        }
+        LONGS.setRelease(shared, RING_HEAD, 0L);
+        shared.putInt(4, VERSION).putInt(8, RING_SLOTS).putInt(12, SLOT_SIZE);
+        VarHandle.storeStoreFence();
+        shared.putInt(0, MAGIC);
+        publishSnapshot(STATE_RUNNING);
+    }
+
+    /**
+     * Publish the state after the tick which just ended
+     */
+    public static void ticked() {
+        if (shared != null) {
+            publishSnapshot(STATE_RUNNING);
+        }
+    }
+
+    /**
+     * Publish a delivery, overwriting the oldest one in the ring
+     * @param tick: tick of the delivery
+     * @param mailId: id of the mail item
+     * @param destinationFloor: floor it was delivered to
+     * @param priorityLevel: priority level of the mail item, 0 for normal mail
+     * @param score: score of the delivery
+     */
+    public static void delivered(int tick, int mailId, int destinationFloor, int priorityLevel, double score) {
+        if (shared != null) {
+            int slot = RING + (int) (deliveries % RING_SLOTS) * SLOT_SIZE;
+            LONGS.setOpaque(shared, slot, -1L);
+            VarHandle.storeStoreFence();
+            shared.putInt(slot + SLOT_TICK, tick);
+            shared.putInt(slot + SLOT_MAIL_ID, mailId);
+            shared.putInt(slot + SLOT_FLOOR, destinationFloor);
+            shared.putInt(slot + SLOT_PRIORITY, priorityLevel);
+            shared.putDouble(slot + SLOT_SCORE, score);
+            LONGS.setRelease(shared, slot, deliveries);
+            deliveries++;
+            LONGS.setRelease(shared, RING_HEAD, deliveries);
+        }
+    }
+
+    /**
+     * Publish the final state and stop publishing, if a file is open
+     */
+    public static void close() {
+        if (shared != null) {
+            publishSnapshot(STATE_FINISHED);
+            shared = null;
+        }
+    }
+
+    /**
+     * rewrite the snapshot under the seqlock, from the LiveMetrics
+     * @param state: STATE_RUNNING or STATE_FINISHED
+     */
+    private static void publishSnapshot(long state) {
+        int priorityDepth = 0;
+        for (int i = 1; i < LiveMetrics.PRIORITY_CLASSES; i++) {
+            priorityDepth += LiveMetrics.poolDepth(i);
+        }
+        long sequence = (long) LONGS.get(shared, SNAPSHOT_SEQUENCE) | 1;
+        LONGS.setOpaque(shared, SNAPSHOT_SEQUENCE, sequence);
+        VarHandle.storeStoreFence();
+        shared.putLong(SNAPSHOT_STATE, state);
+        shared.putLong(SNAPSHOT_UPDATED_MILLIS, System.currentTimeMillis());
+        shared.putLong(SNAPSHOT_TICK, LiveMetrics.tick());
+        shared.putLong(SNAPSHOT_POOL_DEPTH, LiveMetrics.poolDepth(0) + priorityDepth);
+        shared.putLong(SNAPSHOT_PRIORITY_DEPTH, priorityDepth);
+        shared.putLong(SNAPSHOT_WAITING, LiveMetrics.robotsIn(RobotState.WAITING));
+        shared.putLong(SNAPSHOT_DELIVERING, LiveMetrics.robotsIn(RobotState.DELIVERING));
+        shared.putLong(SNAPSHOT_RETURNING, LiveMetrics.robotsIn(RobotState.RETURNING));
+        shared.putLong(SNAPSHOT_DELIVERIES, LiveMetrics.deliveries());
+        shared.putDouble(SNAPSHOT_SCORE, LiveMetrics.score());
+        LONGS.setRelease(shared, SNAPSHOT_SEQUENCE, sequence + 1);
+    }
+}
@@ -0,0 +1,214 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * description: Reads the file published by SharedTelemetry, from any
+ *              process, without writing to it. A snapshot is read again
+ *              when the simulation rewrote it meanwhile, and deliveries
+ *              overwritten in the ring before they were read are counted as
+ *              lost rather than waited for.
+ *
+ *              Usage: java telemetry.SharedTelemetryReader <file> [interval ms]
+ *              prints the snapshot and the deliveries since the last one
+ *              every interval, until the simulation finishes.
+ **/
+
+public class SharedTelemetryReader implements Closeable {
+    /**
+     * reads of a snapshot before giving up on a writer which stopped in the middle of one
+     */
+    private static final int SNAPSHOT_TRIES = 1 << 16;
+
+    /**
+     * the simulation state at the end of a tick
+     */
+    public static class Snapshot {
+        private final boolean finished;
+        private final long updatedMillis;
+        private final long tick;
+        private final long poolDepth;
+        private final long priorityDepth;
+        private final long waiting;
+        private final long delivering;
+        private final long returning;
+        private final long deliveries;
+        private final double score;
+
+        private Snapshot(MappedByteBuffer shared) {
+            finished = shared.getLong(SharedTelemetry.SNAPSHOT_STATE) == SharedTelemetry.STATE_FINISHED;
+            updatedMillis = shared.getLong(SharedTelemetry.SNAPSHOT_UPDATED_MILLIS);
+            tick = shared.getLong(SharedTelemetry.SNAPSHOT_TICK);
+            poolDepth = shared.getLong(SharedTelemetry.SNAPSHOT_POOL_DEPTH);
+            priorityDepth = shared.getLong(SharedTelemetry.SNAPSHOT_PRIORITY_DEPTH);
+            waiting = shared.getLong(SharedTelemetry.SNAPSHOT_WAITING);
+            delivering = shared.getLong(SharedTelemetry.SNAPSHOT_DELIVERING);
+            returning = shared.getLong(SharedTelemetry.SNAPSHOT_RETURNING);
+            deliveries = shared.getLong(SharedTelemetry.SNAPSHOT_DELIVERIES);
+            score = shared.getDouble(SharedTelemetry.SNAPSHOT_SCORE);
+        }
+
+        /**
+         * @return true once the simulation has finished
+         */
+        public boolean isFinished() {return finished;}
+
+        /**
+         * @return wall time of the snapshot, in milliseconds since the epoch
+         */
+        public long getUpdatedMillis() {return updatedMillis;}
+
+        public long getTick() {return tick;}
+
+        public long getPoolDepth() {return poolDepth;}
+
+        public long getPriorityDepth() {return priorityDepth;}
+
+        public long getWaiting() {return waiting;}
+
+        public long getDelivering() {return delivering;}
+
+        public long getReturning() {return returning;}
+
+        public long getDeliveries() {return deliveries;}
+
+        public double getScore() {return score;}
+    }
+
+    /**
+     * receives the deliveries read from the ring
+     */
+    public interface DeliveryListener {
+        /**
+         * @param sequence: number of the delivery, from 0
+         * @param tick: tick of the delivery
+         * @param mailId: id of the mail item
+         * @param destinationFloor: floor it was delivered to
+         * @param priorityLevel: priority level of the mail item, 0 for normal mail
+         * @param score: score of the delivery
+         */
+        void delivered(long sequence, int tick, int mailId, int destinationFloor, int priorityLevel, double score);
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer shared;
+
+    /**
+     * sequence number of the next delivery to read
+     */
+    private long nextDelivery = 0;
+
+    /**
+     * Map a file published by SharedTelemetry
+     * @param path: the file
+     * @throws IOException if the file can not be read or is not published by SharedTelemetry
+     */
+    public SharedTelemetryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < SharedTelemetry.FILE_SIZE) {
+                throw new IOException(path + " is not shared telemetry");
+            }
+            shared = channel.map(FileChannel.MapMode.READ_ONLY, 0, SharedTelemetry.FILE_SIZE);
+            shared.order(ByteOrder.LITTLE_ENDIAN);
+            if (shared.getInt(0) != SharedTelemetry.MAGIC || shared.getInt(4) != SharedTelemetry.VERSION ||
+                    shared.getInt(8) != SharedTelemetry.RING_SLOTS || shared.getInt(12) != SharedTelemetry.SLOT_SIZE) {
+                throw new IOException(path + " is not shared telemetry of this version");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the latest snapshot, null if the simulation is in the middle of writing one for too long
+     */
+    public Snapshot readSnapshot() {
+        for (int i = 0; i < SNAPSHOT_TRIES; i++) {
+            long before = (long) SharedTelemetry.LONGS.getAcquire(shared, SharedTelemetry.SNAPSHOT_SEQUENCE);
+            if ((before & 1) == 0) {
+                Snapshot snapshot = new Snapshot(shared);
+                VarHandle.loadLoadFence();
+                if ((long) SharedTelemetry.LONGS.getOpaque(shared, SharedTelemetry.SNAPSHOT_SEQUENCE) == before) {
+                    return snapshot;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        return null;
+    }
+
+    /**
+     * Read the deliveries published since the last call
+     * @param listener: receives them in order
+     * @return deliveries overwritten before they could be read
+     */
+    public long pollDeliveries(DeliveryListener listener) {
+        long head = (long) SharedTelemetry.LONGS.getAcquire(shared, SharedTelemetry.RING_HEAD);
+        if (head < nextDelivery) {
+            /* the simulation started again */
+            nextDelivery = 0;
+        }
+        long lost = Math.max(0, head - SharedTelemetry.RING_SLOTS - nextDelivery);
+        for (long sequence = nextDelivery + lost; sequence < head; sequence++) {
+            int slot = SharedTelemetry.RING + (int) (sequence % SharedTelemetry.RING_SLOTS) * SharedTelemetry.SLOT_SIZE;
+            if ((long) SharedTelemetry.LONGS.getAcquire(shared, slot) != sequence) {
+                lost++;
+                continue;
+            }
+            int tick = shared.getInt(slot + SharedTelemetry.SLOT_TICK);
+            int mailId = shared.getInt(slot + SharedTelemetry.SLOT_MAIL_ID);
+            int floor = shared.getInt(slot + SharedTelemetry.SLOT_FLOOR);
+            int priority = shared.getInt(slot + SharedTelemetry.SLOT_PRIORITY);
+            double score = shared.getDouble(slot + SharedTelemetry.SLOT_SCORE);
+            VarHandle.loadLoadFence();
+            if ((long) SharedTelemetry.LONGS.getOpaque(shared, slot) != sequence) {
+                lost++;
+                continue;
+            }
+            listener.delivered(sequence, tick, mailId, floor, priority, score);
+        }
+        nextDelivery = head;
+        return lost;
+    }
+
+    @Override
+    public void close() throws IOException {channel.close();}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1 && args.length != 2) {
+            System.err.println("Usage: java telemetry.SharedTelemetryReader <file> [interval ms]");
+            System.exit(2);
+        }
+        long interval = args.length == 2 ? Long.parseLong(args[1]) : 1000;
+        try (SharedTelemetryReader reader = new SharedTelemetryReader(Paths.get(args[0]))) {
+            long[] polled = new long[1];
+            Snapshot snapshot;
+            do {
+                Thread.sleep(interval);
+                polled[0] = 0;
+                long lost = reader.pollDeliveries(
+                        (sequence, tick, mailId, floor, priority, score) -> polled[0]++);
+                snapshot = reader.readSnapshot();
+                if (snapshot == null) {
+                    System.out.println("snapshot busy");
+                    continue;
+                }
+                System.out.printf("T: %d | pool %d (priority %d) | waiting %d delivering %d returning %d | " +
+                                "delivered %d (+%d read, %d lost) | score %.2f%n",
+                        snapshot.getTick(), snapshot.getPoolDepth(), snapshot.getPriorityDepth(),
+                        snapshot.getWaiting(), snapshot.getDelivering(), snapshot.getReturning(),
+                        snapshot.getDeliveries(), polled[0], lost, snapshot.getScore());
+            } while (snapshot == null || !snapshot.isFinished());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package telemetry;
+
+import automail.IRobot;
+import automail.MailItem;
+import jdk.jfr.*;
+
+import java.util.StringJoiner;
+
+/**
+ * description: JFR event of RobotFactory.createIRobot forming a robot or a
+ *              robot team for a plan; a single robot is a team of one.
+ **/
+
+@Name("automail.TeamFormation")
+@Label("Team Formation")
+@Category("Automail")
+@StackTrace(false)
+public class TeamFormationEvent extends Event {
+    @Label("Tick")
+    int tick;
+
+    @Label("Team Size")
+    int teamSize;
+
+    @Label("Robot Ids")
+    String robotIds;
+
+    @Label("Mail Ids")
+    String mailIds;
+
+    /**
+     * Commit the event if it is recorded, the event is not allocated otherwise
+     * @param tick: current time
+     * @param iRobot: the robot or robot team formed, loaded with the plan
+     */
+    public static void commit(int tick, IRobot iRobot) {
+        TeamFormationEvent event = new TeamFormationEvent();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.teamSize = iRobot.listRobots().size();
+            event.robotIds = iRobot.getId();
+            StringJoiner mailIds = new StringJoiner(",");
+            for (MailItem mailItem: iRobot.listMailItems()) {
+                mailIds.add(mailItem.getId());
+            }
+            event.mailIds = mailIds.toString();
+            event.commit();
+        }
+    }
+}
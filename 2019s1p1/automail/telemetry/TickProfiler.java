@@ -0,0 +1,150 @@
+package telemetry;
+
+import automail.Trace;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+
+/**
+ * description: Times the phases of every tick with System.nanoTime into a
+ *              Histogram per phase. When disabled, the methods only check a
+ *              flag. Phases which follow each other on the simulation thread
+ *              are timed as laps, so a tick takes one clock read per phase.
+ *              Each phase is timed by one thread at a time, and the
+ *              histograms are read after the run has finished.
+ **/
+
+public class TickProfiler {
+    /**
+     * the timed phases of a tick
+     */
+    public enum Phase {
+        MAIL_GENERATION("MailGenerator.step"),
+        MAIL_POOL("MailPool.step"),
+        ROBOTS("robot step"),
+        INVARIANTS("invariant check"),
+        /* the progress watchdog and Clock.Tick, which updates the live metrics, tick series and shared telemetry */
+        TELEMETRY("watchdog, telemetry"),
+        TRACE_OUTPUT("trace output");
+
+        private final String description;
+
+        Phase(String description) {this.description = description;}
+    }
+
+    /**
+     * true while phases are timed
+     */
+    private static boolean enabled = false;
+
+    /**
+     * end of the last lap, only used by the thread stepping the simulation
+     */
+    private static long lapEnd = 0;
+
+    /**
+     * timings of each phase in nanoseconds, by ordinal
+     */
+    private static final Histogram[] histograms = new Histogram[Phase.values().length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Forget all timings and turn the profiler on or off, before a run starts
+     * @param enabled: true to time the phases
+     */
+    public static void reset(boolean enabled) {
+        for (Histogram histogram: histograms) {
+            histogram.reset();
+        }
+        TickProfiler.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {return enabled;}
+
+    /**
+     * @return the start time of a phase, 0 when disabled
+     */
+    public static long start() {return enabled ? System.nanoTime() : 0;}
+
+    /**
+     * Record a phase which started at start
+     * @param phase: the phase
+     * @param start: the phase's start() time
+     */
+    public static void stop(Phase phase, long start) {
+        if (enabled) {
+            histograms[phase.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Start timing laps on the calling thread
+     */
+    public static void startLaps() {
+        if (enabled) {
+            lapEnd = System.nanoTime();
+        }
+    }
+
+    /**
+     * Record a phase which started when the previous lap ended
+     * @param phase: the phase which just ended
+     */
+    public static void lap(Phase phase) {
+        if (enabled) {
+            long now = System.nanoTime();
+            histograms[phase.ordinal()].record(now - lapEnd);
+            lapEnd = now;
+        }
+    }
+
+    /**
+     * Record a phase timed by the caller
+     * @param phase: the phase
+     * @param nanos: how long the phase took
+     */
+    public static void record(Phase phase, long nanos) {
+        if (enabled) {
+            histograms[phase.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * @param phase: a phase
+     * @return timings of the phase so far
+     */
+    public static Histogram histogramOf(Phase phase) {return histograms[phase.ordinal()];}
+
+    /**
+     * Print p50, p99 and max of every timed phase to the trace
+     */
+    public static void printSummary() {
+        Trace.printf("Tick profile (ns)     %10s %10s %10s %12s%n", "count", "p50", "p99", "max");
+        for (Phase phase: Phase.values()) {
+            Histogram histogram = histogramOf(phase);
+            if (histogram.getTotalCount() > 0) {
+                Trace.printf("  %-20s%10d %10d %10d %12d%n", phase.description, histogram.getTotalCount(),
+                        histogram.valueAtPercentile(50), histogram.valueAtPercentile(99), histogram.getMax());
+            }
+        }
+    }
+
+    /**
+     * Write the buckets of every phase as "phase,lowest ns,highest ns,count" lines
+     * @param fileName: the file to write to
+     * @throws FileNotFoundException if the file can not be created
+     */
+    public static void dump(String fileName) throws FileNotFoundException {
+        try (PrintStream out = new PrintStream(fileName)) {
+            out.println("phase,lowest_ns,highest_ns,count");
+            for (Phase phase: Phase.values()) {
+                histogramOf(phase).writeBuckets(phase.name(), out);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package telemetry;
+
+import automail.RobotState;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * description: Records a row per tick into a TickSeriesWriter when the clock
+ *              ticks: pool depth, priority mail depth, robots waiting,
+ *              delivering and returning, dispatches and deliveries in the
+ *              tick, and the score so far. The values are read from the
+ *              LiveMetrics, which must be enabled while recording. When no
+ *              file is open, a tick only checks a field.
+ **/
+
+public class TickSeries {
+    public static final int POOL_DEPTH = 0;
+    public static final int PRIORITY_DEPTH = 1;
+    public static final int WAITING = 2;
+    public static final int DELIVERING = 3;
+    public static final int RETURNING = 4;
+    public static final int DISPATCHES = 5;
+    public static final int DELIVERIES = 6;
+    public static final int SCORE = 7;
+
+    private static final String[] NAMES = {
+            "pool_depth", "priority_depth", "waiting", "delivering", "returning", "dispatches", "deliveries", "score"};
+    private static final TickSeriesWriter.Type[] TYPES = {
+            TickSeriesWriter.Type.INT, TickSeriesWriter.Type.INT, TickSeriesWriter.Type.INT,
+            TickSeriesWriter.Type.INT, TickSeriesWriter.Type.INT, TickSeriesWriter.Type.INT,
+            TickSeriesWriter.Type.INT, TickSeriesWriter.Type.DOUBLE};
+
+    /**
+     * the file recorded into, null when not recording
+     */
+    private static TickSeriesWriter writer = null;
+
+    /**
+     * dispatches and deliveries up to the previous tick
+     */
+    private static long lastDispatches = 0;
+    private static long lastDeliveries = 0;
+
+    /**
+     * Start recording into a file, before a run starts
+     * @param fileName: the file, overwritten
+     * @throws IOException if the file can not be written
+     */
+    public static void open(String fileName) throws IOException {
+        close();
+        writer = new TickSeriesWriter(Paths.get(fileName), NAMES, TYPES);
+        lastDispatches = 0;
+        lastDeliveries = 0;
+    }
+
+    /**
+     * Record the tick which just ended
+     */
+    public static void ticked() {
+        if (writer != null) {
+            int priorityDepth = 0;
+            for (int i = 1; i < LiveMetrics.PRIORITY_CLASSES; i++) {
+                priorityDepth += LiveMetrics.poolDepth(i);
+            }
+            long dispatches = LiveMetrics.dispatches();
+            long deliveries = LiveMetrics.deliveries();
+            writer.setInt(POOL_DEPTH, (int) LiveMetrics.poolDepth(0) + priorityDepth);
+            writer.setInt(PRIORITY_DEPTH, priorityDepth);
+            writer.setInt(WAITING, (int) LiveMetrics.robotsIn(RobotState.WAITING));
+            writer.setInt(DELIVERING, (int) LiveMetrics.robotsIn(RobotState.DELIVERING));
+            writer.setInt(RETURNING, (int) LiveMetrics.robotsIn(RobotState.RETURNING));
+            writer.setInt(DISPATCHES, (int) (dispatches - lastDispatches));
+            writer.setInt(DELIVERIES, (int) (deliveries - lastDeliveries));
+            writer.setDouble(SCORE, LiveMetrics.score());
+            writer.endRow();
+            lastDispatches = dispatches;
+            lastDeliveries = deliveries;
+        }
+    }
+
+    /**
+     * Stop recording and finish the file, if one is open
+     * @throws IOException if the file can not be written
+     */
+    public static void close() throws IOException {
+        if (writer != null) {
+            TickSeriesWriter closing = writer;
+            writer = null;
+            closing.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * description: Reads a file written by the TickSeriesWriter. Every block is
+ *              mapped read only when the file is opened, so a value or a
+ *              whole column is read without copying the file.
+ *
+ *              Usage: java telemetry.TickSeriesReader <file>
+ *              prints the file as CSV, for tools which do not read it.
+ **/
+
+public class TickSeriesReader implements Closeable {
+    private final FileChannel channel;
+    private final String[] names;
+    private final TickSeriesWriter.Type[] types;
+    private final int blockRows;
+    private final int rows;
+
+    /**
+     * the blocks, the offset of each column in its block, and the base and width of its values
+     */
+    private final ByteBuffer[] blocks;
+    private final int[][] offsets;
+    private final int[][] bases;
+    private final int[][] widths;
+
+    /**
+     * Open and map a file
+     * @param path: the file
+     * @throws IOException if the file can not be read or is not a tick series
+     */
+    public TickSeriesReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = map(0, (int) Math.min(channel.size(), 1 << 16));
+            if (header.remaining() < TickSeriesWriter.ROWS_POSITION + Integer.BYTES ||
+                    header.getInt() != TickSeriesWriter.MAGIC) {
+                throw new IOException(path + " is not a tick series");
+            }
+            int version = header.getInt();
+            if (version != TickSeriesWriter.VERSION) {
+                throw new IOException(path + " has version " + version);
+            }
+            blockRows = header.getInt();
+            int columns = header.getInt();
+            rows = header.getInt();
+            names = new String[columns];
+            types = new TickSeriesWriter.Type[columns];
+            for (int i = 0; i < columns; i++) {
+                types[i] = TickSeriesWriter.Type.values()[header.get()];
+                byte[] name = new byte[header.getShort()];
+                header.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            int blockCount = (rows + blockRows - 1) / blockRows;
+            blocks = new ByteBuffer[blockCount];
+            offsets = new int[blockCount][columns];
+            bases = new int[blockCount][columns];
+            widths = new int[blockCount][columns];
+            long position = header.position();
+            for (int b = 0; b < blockCount; b++) {
+                int rowsInBlock = Math.min(blockRows, rows - b * blockRows);
+                int directorySize = columns * (Integer.BYTES + Byte.BYTES);
+                ByteBuffer directory = map(position, directorySize);
+                int blockSize = directorySize;
+                for (int i = 0; i < columns; i++) {
+                    bases[b][i] = directory.getInt();
+                    widths[b][i] = directory.get();
+                    offsets[b][i] = blockSize;
+                    blockSize += widths[b][i] * rowsInBlock;
+                }
+                blocks[b] = map(position, blockSize);
+                position += blockSize;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return rows in the file, one per tick
+     */
+    public int getRows() {return rows;}
+
+    /**
+     * @return number of columns
+     */
+    public int getColumns() {return names.length;}
+
+    /**
+     * @param column: a column
+     * @return its name
+     */
+    public String getName(int column) {return names[column];}
+
+    /**
+     * @param column: a column
+     * @return its type
+     */
+    public TickSeriesWriter.Type getType(int column) {return types[column];}
+
+    /**
+     * @param name: name of a column
+     * @return the column
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int column(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no column " + name);
+    }
+
+    /**
+     * @param column: an INT column
+     * @param row: a row
+     * @return the value
+     */
+    public int getInt(int column, int row) {
+        int b = row / blockRows;
+        ByteBuffer block = blocks[b];
+        int at = row - b * blockRows;
+        switch (widths[b][column]) {
+            case 0:
+                return bases[b][column];
+            case 1:
+                return bases[b][column] + Byte.toUnsignedInt(block.get(offsets[b][column] + at));
+            case 2:
+                return bases[b][column] + Short.toUnsignedInt(block.getShort(offsets[b][column] + 2 * at));
+            default:
+                return bases[b][column] + block.getInt(offsets[b][column] + 4 * at);
+        }
+    }
+
+    /**
+     * @param column: a DOUBLE column
+     * @param row: a row
+     * @return the value
+     */
+    public double getDouble(int column, int row) {
+        int b = row / blockRows;
+        return blocks[b].getDouble(offsets[b][column] + 8 * (row - b * blockRows));
+    }
+
+    /**
+     * @param column: an INT column
+     * @return all its values
+     */
+    public int[] ints(int column) {
+        int[] values = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            values[row] = getInt(column, row);
+        }
+        return values;
+    }
+
+    /**
+     * @param column: a DOUBLE column
+     * @return all its values
+     */
+    public double[] doubles(int column) {
+        double[] values = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            values[row] = getDouble(column, row);
+        }
+        return values;
+    }
+
+    /**
+     * Print the file as CSV, a tick column first
+     * @param out: where to print
+     */
+    public void writeCsv(PrintStream out) {
+        StringBuilder line = new StringBuilder("tick");
+        for (String name: names) {
+            line.append(',').append(name);
+        }
+        out.println(line);
+        for (int row = 0; row < rows; row++) {
+            line.setLength(0);
+            line.append(row);
+            for (int i = 0; i < names.length; i++) {
+                line.append(',');
+                if (types[i] == TickSeriesWriter.Type.INT) {
+                    line.append(getInt(i, row));
+                } else {
+                    line.append(String.format(Locale.ROOT, "%.2f", getDouble(i, row)));
+                }
+            }
+            out.println(line);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {channel.close();}
+
+    private ByteBuffer map(long position, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java telemetry.TickSeriesReader <file>");
+            System.exit(2);
+        }
+        try (TickSeriesReader reader = new TickSeriesReader(Paths.get(args[0]))) {
+            reader.writeCsv(System.out);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package telemetry;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * description: Writes a time series of int and double columns, one row per
+ *              tick, to a columnar file through a memory mapping. Rows are
+ *              kept in arrays until a block of BLOCK_ROWS rows is full, then
+ *              every column of the block is written one after another. An
+ *              int column of a block is stored as its minimum and the
+ *              offsets from it in the fewest of 0, 1, 2 or 4 bytes, so a
+ *              value stays fixed width within the block and slowly changing
+ *              counters take a byte or two a tick. Doubles take 8 bytes.
+ *
+ *              File: magic, version, block rows, columns, rows (ints), then
+ *              per column its type and its name (byte, short length, UTF-8),
+ *              then the blocks. Block: per column its base (int) and width
+ *              (byte), then the column data. All little endian.
+ **/
+
+public class TickSeriesWriter implements Closeable {
+    static final int MAGIC = 0x31535441;  // "ATS1"
+    static final int VERSION = 1;
+    static final int BLOCK_ROWS = 4096;
+
+    /**
+     * position of the row count in the file
+     */
+    static final int ROWS_POSITION = 16;
+
+    /**
+     * types of a column
+     */
+    public enum Type {
+        INT(4), DOUBLE(8);
+
+        final int width;
+
+        Type(int width) {this.width = width;}
+    }
+
+    private final FileChannel channel;
+    private final Type[] types;
+
+    /**
+     * rows of the current block by column, of the column's type, null for the other type
+     */
+    private final int[][] intRows;
+    private final double[][] doubleRows;
+    private int blockRow = 0;
+    private int rows = 0;
+
+    /**
+     * position in the file the next block is written at
+     */
+    private long position = 0;
+
+    /**
+     * Create or overwrite the file, and write the header
+     * @param path: the file
+     * @param names: names of the columns
+     * @param types: types of the columns
+     * @throws IOException if the file can not be written
+     */
+    public TickSeriesWriter(Path path, String[] names, Type[] types) throws IOException {
+        assert names.length == types.length;
+        this.types = types.clone();
+        intRows = new int[types.length][];
+        doubleRows = new double[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Type.INT) {
+                intRows[i] = new int[BLOCK_ROWS];
+            } else {
+                doubleRows[i] = new double[BLOCK_ROWS];
+            }
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        byte[][] encodedNames = new byte[names.length][];
+        int headerSize = ROWS_POSITION + Integer.BYTES;
+        for (int i = 0; i < names.length; i++) {
+            encodedNames[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            headerSize += Byte.BYTES + Short.BYTES + encodedNames[i].length;
+        }
+        ByteBuffer header = reserve(headerSize);
+        header.putInt(MAGIC).putInt(VERSION).putInt(BLOCK_ROWS).putInt(types.length).putInt(0);
+        for (int i = 0; i < names.length; i++) {
+            header.put((byte) types[i].ordinal());
+            header.putShort((short) encodedNames[i].length);
+            header.put(encodedNames[i]);
+        }
+    }
+
+    /**
+     * @param column: an INT column
+     * @param value: its value in the current row
+     */
+    public void setInt(int column, int value) {intRows[column][blockRow] = value;}
+
+    /**
+     * @param column: a DOUBLE column
+     * @param value: its value in the current row
+     */
+    public void setDouble(int column, double value) {doubleRows[column][blockRow] = value;}
+
+    /**
+     * Finish the current row, after every column of it has been set
+     */
+    public void endRow() {
+        blockRow++;
+        rows++;
+        if (blockRow == BLOCK_ROWS) {
+            try {
+                writeBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return rows written so far
+     */
+    public int getRows() {return rows;}
+
+    /**
+     * Write the last block and the row count
+     * @throws IOException if the file can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (blockRow > 0) {
+                writeBlock();
+            }
+            ByteBuffer rowCount = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(rows);
+            rowCount.flip();
+            channel.write(rowCount, ROWS_POSITION);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * write the rows of the current block and start the next one
+     */
+    private void writeBlock() throws IOException {
+        int blockSize = 0;
+        int[] bases = new int[types.length];
+        int[] widths = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Type.INT) {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int row = 0; row < blockRow; row++) {
+                    min = Math.min(min, intRows[i][row]);
+                    max = Math.max(max, intRows[i][row]);
+                }
+                long range = (long) max - min;
+                bases[i] = min;
+                widths[i] = range == 0 ? 0 : range <= 0xFF ? 1 : range <= 0xFFFF ? 2 : 4;
+            } else {
+                widths[i] = Type.DOUBLE.width;
+            }
+            blockSize += Integer.BYTES + Byte.BYTES + widths[i] * blockRow;
+        }
+
+        ByteBuffer block = reserve(blockSize);
+        for (int i = 0; i < types.length; i++) {
+            block.putInt(bases[i]).put((byte) widths[i]);
+        }
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Type.DOUBLE) {
+                for (int row = 0; row < blockRow; row++) {
+                    block.putDouble(doubleRows[i][row]);
+                }
+                continue;
+            }
+            int base = bases[i];
+            int[] values = intRows[i];
+            switch (widths[i]) {
+                case 1:
+                    for (int row = 0; row < blockRow; row++) {
+                        block.put((byte) (values[row] - base));
+                    }
+                    break;
+                case 2:
+                    for (int row = 0; row < blockRow; row++) {
+                        block.putShort((short) (values[row] - base));
+                    }
+                    break;
+                case 4:
+                    for (int row = 0; row < blockRow; row++) {
+                        block.putInt(values[row] - base);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        blockRow = 0;
+    }
+
+    /**
+     * Map exactly the next size bytes, so the file grows only by what is
+     * written and never needs to be cut while a region is still mapped
+     * @param size: bytes to write next
+     * @return a buffer over the next size bytes of the file
+     */
+    private ByteBuffer reserve(int size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        position += size;
+        return buffer;
+    }
+}
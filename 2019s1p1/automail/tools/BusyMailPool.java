@@ -0,0 +1,93 @@
+package tools;
+
+import automail.*;
+import exceptions.InvalidDispatchException;
+import strategies.IMailPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * description: A mail pool which always has mail, so every robot registering
+ *              waiting is dispatched again in the next tick. Used to keep a
+ *              fleet of any size busy when measuring Automail.step.
+ **/
+
+public class BusyMailPool implements IMailPool {
+    /**
+     * distinct mail items handed out to robots, items are reused between trips
+     */
+    private static final int MAIL_ITEMS = 4096;
+
+    /**
+     * every n-th dispatch forms a team of two robots for a heavy item
+     */
+    private static final int TEAM_EVERY = 16;
+
+    /**
+     * robots at mailPool with waiting state
+     */
+    private ArrayList<Robot> robots = new ArrayList<>();
+
+    /**
+     * mail items handed out to robots
+     */
+    private final MailItem[] lightMailItems = new MailItem[MAIL_ITEMS];
+
+    /**
+     * heavy mail items handed out to teams
+     */
+    private final MailItem[] heavyMailItems = new MailItem[MAIL_ITEMS];
+
+    /**
+     * number of robots dispatched so far
+     */
+    private int nDispatched = 0;
+
+    /**
+     * @param floors: floors mail items are delivered to
+     */
+    public BusyMailPool(int floors) {
+        Random random = new Random(30006);
+        for (int i = 0; i < MAIL_ITEMS; i++) {
+            int lightWeight = 1 + random.nextInt(ITeamState.SINGLE_MAX_WEIGHT);
+            int heavyWeight = ITeamState.SINGLE_MAX_WEIGHT + 1 +
+                    random.nextInt(ITeamState.DOUBLE_MAX_WEIGHT - ITeamState.SINGLE_MAX_WEIGHT);
+            lightMailItems[i] = new MailItem(Building.LOWEST_FLOOR + random.nextInt(floors), 1, lightWeight);
+            heavyMailItems[i] = new MailItem(Building.LOWEST_FLOOR + random.nextInt(floors), 1, heavyWeight);
+        }
+    }
+
+    @Override
+    public void addToPool(MailItem mailItem) { }
+
+    @Override
+    public ArrayList<IRobot> step() throws InvalidDispatchException {
+        ArrayList<IRobot> iRobots = new ArrayList<>();
+        int next = 0;
+        while (next < robots.size()) {
+            List<MailItem> plan = new ArrayList<>();
+            List<Robot> team;
+            if (nDispatched % TEAM_EVERY == 0 && next + 1 < robots.size()) {
+                plan.add(heavyMailItems[nDispatched % MAIL_ITEMS]);
+                team = robots.subList(next, next + 2);
+            } else {
+                plan.add(lightMailItems[nDispatched % MAIL_ITEMS]);
+                plan.add(lightMailItems[(nDispatched + 1) % MAIL_ITEMS]);
+                team = robots.subList(next, next + 1);
+            }
+            next += team.size();
+            nDispatched++;
+
+            IRobot iRobot = RobotFactory.getInstance().createIRobot(team, plan);
+            iRobot.dispatch();
+            iRobots.add(iRobot);
+        }
+        robots = new ArrayList<>();
+        return iRobots;
+    }
+
+    @Override
+    public void registerWaiting(Robot robot) {robots.add(robot);}
+}
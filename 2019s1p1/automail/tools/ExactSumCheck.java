@@ -0,0 +1,244 @@
+package tools;
+
+import automail.ExactSum;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * description: Checks ExactSum against BigDecimal on random lists of values.
+ *              Each case sums a list of doubles of any magnitude, subnormals
+ *              included, and the sum must be the exact BigDecimal sum rounded
+ *              to the nearest double
+ *              - in the order of the list and in a shuffled order
+ *              - when the list is split into partial sums which are merged
+ *                with add(ExactSum) in a random order, then added to further
+ *              - when the exact sum is half way between two doubles, which
+ *                must round to the even one
+ *
+ * usage: java tools.ExactSumCheck [--cases n, default 10000] [--seed s]
+ *        exits with 1 if any sum differs
+ **/
+
+public class ExactSumCheck {
+    /**
+     * most values in a list
+     */
+    private static final int MAX_VALUES = 200;
+
+    /**
+     * most partial sums a list is split into
+     */
+    private static final int MAX_PARTS = 8;
+
+    /**
+     * differences reported in full, the rest are only counted
+     */
+    private static final int REPORTED_FAILURES = 10;
+
+    /**
+     * values of a differing sum printed
+     */
+    private static final int REPORTED_VALUES = 8;
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        long cases = 10_000;
+        long seed = System.nanoTime();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--cases":
+                    cases = Long.parseLong(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.printf("Checking ExactSum with seed %d%n", seed);
+        Random random = new Random(seed);
+        long checks = 0;
+        for (long c = 0; c < cases; c++) {
+            List<Double> values = randomValues(random);
+            if (random.nextInt(4) == 0) {
+                addTie(values, random);
+            }
+            double expected = exactSum(values).doubleValue();
+
+            check("in order", values, expected, sum(values));
+            List<Double> shuffled = new ArrayList<>(values);
+            Collections.shuffle(shuffled, random);
+            check("shuffled", values, expected, sum(shuffled));
+            check("merged", values, expected, mergedSum(shuffled, random));
+            checks += 3;
+        }
+        checks += checkTies(random, cases);
+        System.out.printf("%d cases, %d sums checked, %d differ%n", cases, checks, failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return a list of random doubles, from subnormals to 2^1019 and exact
+     * zeros, mostly of a few nearby magnitudes so that their sums round
+     */
+    private static List<Double> randomValues(Random random) {
+        int n = random.nextInt(MAX_VALUES + 1);
+        /* the binary exponent most values are near, from the subnormals to large values */
+        int centre = -1074 + random.nextInt(2065);
+        List<Double> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    values.add(subnormal(random));
+                    break;
+                case 1:
+                    values.add(random.nextInt(4) == 0 ? 0.0 : Double.MIN_VALUE * (1 + random.nextInt(4)));
+                    break;
+                case 2:
+                    values.add(random.nextDouble() * Math.scalb(1.0, -1074 + random.nextInt(2075)));
+                    break;
+                default:
+                    values.add(random.nextDouble() * Math.scalb(1.0, centre + random.nextInt(60) - 30));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return a random subnormal double, or a double near the smallest normal one
+     */
+    private static double subnormal(Random random) {
+        long mantissa = random.nextLong() & ((1L << 52) - 1);
+        /* biased exponent 0 is subnormal, 1 the smallest normal exponent */
+        return Double.longBitsToDouble(((long) random.nextInt(2) << 52) | mantissa);
+    }
+
+    /**
+     * Add the values making the sum of the list half way between two doubles,
+     * some of them spread over several values
+     */
+    private static void addTie(List<Double> values, Random random) {
+        BigDecimal sum = exactSum(values);
+        double rounded = sum.doubleValue();
+        if (rounded == 0 || Double.isInfinite(rounded) || Math.ulp(rounded) < 4 * Double.MIN_VALUE) {
+            return;
+        }
+        /* the sum up to the next multiple of an ulp, then half an ulp more */
+        BigDecimal ulp = new BigDecimal(Math.ulp(rounded));
+        BigDecimal toMultiple = ulp.subtract(sum.remainder(ulp));
+        BigDecimal missing = toMultiple.add(new BigDecimal(Math.ulp(rounded) / 2));
+        while (missing.signum() > 0) {
+            double part = missing.doubleValue();
+            /* a double not above what is missing, split once in a while */
+            if (new BigDecimal(part).compareTo(missing) > 0) {
+                part = Math.nextDown(part);
+            }
+            if (random.nextBoolean() && part / 2 >= Double.MIN_NORMAL) {
+                part /= 2;
+            }
+            values.add(part);
+            missing = missing.subtract(new BigDecimal(part));
+        }
+    }
+
+    /**
+     * Sums exactly half way between two doubles, built from one value and half
+     * its ulp, which must round to the one with an even mantissa
+     * @return the sums checked
+     */
+    private static long checkTies(Random random, long cases) {
+        long checks = 0;
+        for (long c = 0; c < cases; c++) {
+            double value = Math.abs(Double.longBitsToDouble(random.nextLong()));
+            if (Double.isNaN(value) || Double.isInfinite(value) || value == Double.MAX_VALUE ||
+                    Math.ulp(value) < 2 * Double.MIN_VALUE) {
+                continue;
+            }
+            double halfUlp = Math.ulp(value) / 2;
+            List<Double> values = List.of(value, halfUlp);
+            double even = (Double.doubleToRawLongBits(value) & 1) == 0 ? value : Math.nextUp(value);
+            check("tie to even", values, even, sum(values));
+            List<Double> pastTie = List.of(halfUlp, value, Double.MIN_VALUE);
+            check("past a tie", pastTie, Math.nextUp(value), sum(pastTie));
+            checks += 2;
+        }
+        return checks;
+    }
+
+    /**
+     * @return the values summed in order
+     */
+    private static double sum(List<Double> values) {
+        ExactSum sum = new ExactSum();
+        for (double value: values) {
+            sum.add(value);
+        }
+        return sum.doubleValue();
+    }
+
+    /**
+     * @return the values summed in partial sums which are merged in a random
+     * order, some of the values added after merging
+     */
+    private static double mergedSum(List<Double> values, Random random) {
+        int nParts = 1 + random.nextInt(MAX_PARTS);
+        List<ExactSum> parts = new ArrayList<>();
+        for (int i = 0; i < nParts; i++) {
+            parts.add(new ExactSum());
+        }
+        /* the last part of the values is added to the merged sum */
+        int afterMerge = random.nextInt(values.size() + 1);
+        for (int i = 0; i < afterMerge; i++) {
+            ExactSum part = parts.get(random.nextInt(nParts));
+            part.add(values.get(i));
+            if (random.nextInt(16) == 0) {
+                /* reading a partial sum carries it, merging must not depend on that */
+                part.doubleValue();
+            }
+        }
+        Collections.shuffle(parts, random);
+        while (parts.size() > 1) {
+            ExactSum other = parts.remove(random.nextInt(parts.size()));
+            parts.get(random.nextInt(parts.size())).add(other);
+        }
+        ExactSum merged = parts.get(0);
+        for (int i = afterMerge; i < values.size(); i++) {
+            merged.add(values.get(i));
+        }
+        return merged.doubleValue();
+    }
+
+    /**
+     * @return the exact sum of the values
+     */
+    private static BigDecimal exactSum(List<Double> values) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (double value: values) {
+            sum = sum.add(new BigDecimal(value));
+        }
+        return sum;
+    }
+
+    /**
+     * Count a sum which is not the expected double, and print the first ones
+     */
+    private static void check(String how, List<Double> values, double expected, double actual) {
+        if (Double.doubleToRawLongBits(expected) == Double.doubleToRawLongBits(actual)) {
+            return;
+        }
+        if (++failures <= REPORTED_FAILURES) {
+            System.out.printf("DIFF %s: expected %s, ExactSum %s, %d values %s%s%n", how,
+                    Double.toHexString(expected), Double.toHexString(actual), values.size(),
+                    values.subList(0, Math.min(values.size(), REPORTED_VALUES)),
+                    values.size() > REPORTED_VALUES ? " ..." : "");
+        }
+    }
+}
@@ -0,0 +1,615 @@
+package tools;
+
+import automail.Building;
+import automail.Clock;
+import automail.IMailDelivery;
+import automail.IRobot;
+import automail.ITeamState;
+import automail.MailGenerator;
+import automail.MailItem;
+import automail.Robot;
+import automail.RunResult;
+import automail.Simulation;
+import automail.TeamState;
+import automail.Trace;
+import exceptions.InvalidDispatchException;
+import exceptions.MailAlreadyDeliveredException;
+import strategies.Automail;
+import strategies.IMailPool;
+import strategies.InvariantChecker;
+import strategies.MailPool;
+import strategies.SelectMailItemToDeliverPlan;
+import strategies.SelectRobotToDeliverPlan;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * description: Simulates random small configurations in this JVM, the same
+ *              way as the serial loop of Simulation, on a worker thread per
+ *              core. The simulation keeps its state in static fields, so each
+ *              worker loads its own copy of the simulation classes, as
+ *              GoldenSuite does. It checks after every tick that
+ *              - no mail item is delivered twice
+ *              - every mail item is either yet to arrive, in the pool,
+ *                carried or delivered, and in only one of them
+ *              - the robots of a team are on the same floor
+ *              - no robot carries more than its TeamState.validWeight()
+ *              - the simulation ends within a horizon
+ *              - the InvariantChecker's checks pass, in FULL mode
+ *              An exception thrown by the simulation is a failure as well.
+ *              A configuration out of range, such as less than 3 mail items,
+ *              must be refused by Simulation.run with INVALID_CONFIG.
+ *              A failing configuration is shrunk, one property at a time,
+ *              while it fails in the same way, and written as a properties
+ *              file which Simulation runs and --replay checks again.
+ *
+ * usage: java tools.Fuzzer [--seconds s, default 10] [--cases n] [--seed s] [--threads n, default cores]
+ *                          [--out directory, default fuzz]
+ *        java tools.Fuzzer --replay <properties file>
+ **/
+
+public class Fuzzer {
+    private static final int MAX_FLOORS = 20;
+    private static final int MAX_ROBOTS = 6;
+    private static final int MAX_MAIL = 60;
+    private static final int MAX_LAST_DELIVERY_TIME = 150;
+
+    /**
+     * a configuration of the simulation, as in the properties file
+     */
+    private static class Config {
+        private final int seed;
+        private final int floors;
+        private final int robots;
+        private final int mail;
+        private final int maxWeight;
+        private final int lastDeliveryTime;
+
+        private Config(int seed, int floors, int robots, int mail, int maxWeight, int lastDeliveryTime) {
+            this.seed = seed;
+            this.floors = floors;
+            this.robots = robots;
+            this.mail = mail;
+            this.maxWeight = maxWeight;
+            this.lastDeliveryTime = lastDeliveryTime;
+        }
+
+        /**
+         * @return false if Simulation would refuse a property with InvalidConfigurationException,
+         * it needs 3 or more mail items to vary them by +/-20%
+         */
+        private boolean isInRange() {
+            return floors >= 1 && robots >= 1 && mail >= 3 && maxWeight >= 1 && lastDeliveryTime >= 1;
+        }
+
+        /**
+         * @return false if Simulation would refuse it as out of range or with NotEnoughRobotException
+         */
+        private boolean isValid() {
+            return isInRange() && maxWeight <= carryLimit(robots);
+        }
+
+        /**
+         * @return true if no property is negative, so shrinking stops
+         */
+        private boolean isNonNegative() {
+            return floors >= 0 && robots >= 0 && mail >= 0 && maxWeight >= 0 && lastDeliveryTime >= 0;
+        }
+
+        private Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("Seed", String.valueOf(seed));
+            properties.setProperty("Floors", String.valueOf(floors));
+            properties.setProperty("Mail_to_Create", String.valueOf(mail));
+            properties.setProperty("Mail_Max_Weight", String.valueOf(maxWeight));
+            properties.setProperty("Last_Delivery_Time", String.valueOf(lastDeliveryTime));
+            properties.setProperty("Robots", String.valueOf(robots));
+            return properties;
+        }
+
+        private static Config of(Properties properties) {
+            return new Config(Integer.parseInt(properties.getProperty("Seed")),
+                    Integer.parseInt(properties.getProperty("Floors")),
+                    Integer.parseInt(properties.getProperty("Robots")),
+                    Integer.parseInt(properties.getProperty("Mail_to_Create")),
+                    Integer.parseInt(properties.getProperty("Mail_Max_Weight")),
+                    Integer.parseInt(properties.getProperty("Last_Delivery_Time")));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Seed=%d Floors=%d Robots=%d Mail_to_Create=%d Mail_Max_Weight=%d " +
+                    "Last_Delivery_Time=%d", seed, floors, robots, mail, maxWeight, lastDeliveryTime);
+        }
+    }
+
+    /**
+     * a broken invariant, the kind tells failures apart while shrinking
+     */
+    private static class Failure {
+        private final String kind;
+        private final int tick;
+        private final String detail;
+
+        private Failure(String kind, int tick, String detail) {
+            this.kind = kind;
+            this.tick = tick;
+            this.detail = detail;
+        }
+
+        @Override
+        public String toString() {return String.format("%s at tick %d: %s", kind, tick, detail);}
+    }
+
+    /**
+     * The mail pool, keeping track of the mail items in it
+     */
+    private static class TrackedMailPool implements IMailPool {
+        private final IMailPool mailPool;
+        private final Set<MailItem> inPool = Collections.newSetFromMap(new IdentityHashMap<>());
+        private Failure failure = null;
+
+        private TrackedMailPool(IMailPool mailPool) {this.mailPool = mailPool;}
+
+        @Override
+        public void addToPool(MailItem mailItem) {
+            if (!inPool.add(mailItem) && failure == null) {
+                failure = new Failure("added twice", Clock.Time(), mailItem.toString());
+            }
+            mailPool.addToPool(mailItem);
+        }
+
+        @Override
+        public ArrayList<IRobot> step() throws InvalidDispatchException {
+            ArrayList<IRobot> dispatched = mailPool.step();
+            Set<MailItem> loaded = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (IRobot iRobot: dispatched) {
+                loaded.addAll(iRobot.listMailItems());
+            }
+            for (MailItem mailItem: loaded) {
+                if (!inPool.remove(mailItem) && failure == null) {
+                    failure = new Failure("loaded from outside the pool", Clock.Time(), mailItem.toString());
+                }
+            }
+            return dispatched;
+        }
+
+        @Override
+        public void registerWaiting(Robot robot) {mailPool.registerWaiting(robot);}
+
+        @Override
+        public void checkInvariants(List<Robot> fleet) {mailPool.checkInvariants(fleet);}
+    }
+
+    /**
+     * Records deliveries, a second delivery of an item is a failure
+     */
+    private static class CheckedDelivery implements IMailDelivery {
+        private final Set<MailItem> delivered = Collections.newSetFromMap(new IdentityHashMap<>());
+        private Failure failure = null;
+
+        @Override
+        public void deliver(MailItem mailItem) {
+            if (!delivered.add(mailItem) && failure == null) {
+                failure = new Failure("delivered twice", Clock.Time(),
+                        new MailAlreadyDeliveredException().getMessage() + " " + mailItem);
+            }
+        }
+    }
+
+    /**
+     * A worker thread's own copy of the simulation classes and this class, the
+     * simulation keeps its state in static fields
+     */
+    private static class FuzzerCopy {
+        private final Method fuzzCase;
+        private final Method shrinkCase;
+
+        private FuzzerCopy(URL[] classPath) throws ReflectiveOperationException {
+            ClassLoader loader = new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader());
+            Class.forName("automail.Trace", true, loader).getMethod("setOut", PrintStream.class)
+                    .invoke(null, (Object) null);
+            Class<?> fuzzer = Class.forName(Fuzzer.class.getName(), true, loader);
+            fuzzCase = fuzzer.getDeclaredMethod("fuzzCase", long.class);
+            shrinkCase = fuzzer.getDeclaredMethod("shrinkCase", long.class, String.class);
+            /* this copy of Fuzzer is in another class loader, so another runtime package */
+            fuzzCase.setAccessible(true);
+            shrinkCase.setAccessible(true);
+        }
+
+        /**
+         * @see Fuzzer#fuzzCase(long)
+         */
+        private String fuzz(long caseSeed) throws IOException {return (String) call(fuzzCase, caseSeed);}
+
+        /**
+         * @see Fuzzer#shrinkCase(long, String)
+         */
+        private String shrink(long caseSeed, Path reproducer) throws IOException {
+            return (String) call(shrinkCase, caseSeed, reproducer.toString());
+        }
+
+        private static Object call(Method method, Object... args) throws IOException {
+            try {
+                return method.invoke(null, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = 10;
+        long cases = Long.MAX_VALUE;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outDirectory = Paths.get("fuzz");
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--cases":
+                    cases = Long.parseLong(args[++i]);
+                    seconds = Long.MAX_VALUE / TimeUnit.SECONDS.toNanos(1);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "--out":
+                    outDirectory = Paths.get(args[++i]);
+                    break;
+                case "--replay":
+                    System.exit(replay(Paths.get(args[++i])) ? 0 : 1);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        System.out.printf("Fuzzing with seed %d on %d threads%n", seed, threads);
+        URL[] classPath = {Fuzzer.class.getProtectionDomain().getCodeSource().getLocation()};
+        FuzzerCopy[] copies = new FuzzerCopy[threads];
+        for (int i = 0; i < threads; i++) {
+            copies[i] = new FuzzerCopy(classPath);
+        }
+
+        long fuzzSeed = seed;
+        long lastCase = cases;
+        Path reproducers = outDirectory;
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong nextCase = new AtomicLong();
+        AtomicLong run = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        /* failures by kind, only the first of a kind is shrunk and written, guarded by itself */
+        Map<String, Integer> kinds = new LinkedHashMap<>();
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            FuzzerCopy copy = copies[i];
+            workers[i] = new Thread(() -> {
+                long c;
+                while (System.nanoTime() - deadline < 0 && (c = nextCase.getAndIncrement()) < lastCase) {
+                    long caseSeed = caseSeed(fuzzSeed, c);
+                    try {
+                        String kind = copy.fuzz(caseSeed);
+                        run.incrementAndGet();
+                        if (!randomConfig(new Random(caseSeed)).isValid()) {
+                            refused.incrementAndGet();
+                        }
+                        if (kind == null) {
+                            continue;
+                        }
+                        failures.incrementAndGet();
+                        int number;
+                        synchronized (kinds) {
+                            number = kinds.merge(kind, 1, Integer::sum) == 1 ? kinds.size() : 0;
+                        }
+                        if (number > 0) {
+                            String report = copy.shrink(caseSeed,
+                                    reproducers.resolve(String.format("fuzz_%d.properties", number)));
+                            synchronized (System.out) {
+                                System.out.print(report);
+                            }
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Can not write a reproducer: " + e);
+                    }
+                }
+            }, "fuzzer-" + i);
+            workers[i].start();
+        }
+        for (Thread worker: workers) {
+            worker.join();
+        }
+
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d simulations (%d of them invalid configurations) in %.1f s on %d threads (%.0f/s), " +
+                "%d failed%n", run.get(), refused.get(), elapsed, threads, run.get() / elapsed, failures.get());
+        for (Map.Entry<String, Integer> kind: kinds.entrySet()) {
+            System.out.printf("  %6d %s%n", kind.getValue(), kind.getKey());
+        }
+        System.exit(failures.get() == 0 ? 0 : 1);
+    }
+
+    /**
+     * @param seed: seed of the fuzzing
+     * @param c: number of the case
+     * @return the seed of the case's configuration, the same on any number of threads
+     */
+    private static long caseSeed(long seed, long c) {return seed + c * 0x9E3779B97F4A7C15L;}
+
+    /**
+     * Simulate one random configuration, called in a worker's copy of this class
+     * @param caseSeed: seed of the configuration
+     * @return the kind of its failure, null if it broke no invariant
+     */
+    private static String fuzzCase(long caseSeed) {
+        Failure failure = simulate(randomConfig(new Random(caseSeed)));
+        return failure == null ? null : failure.kind;
+    }
+
+    /**
+     * Shrink a failing configuration and write the smallest one, called in a worker's copy of this class
+     * @param caseSeed: seed of the failing configuration
+     * @param reproducer: file to write the smallest failing configuration to
+     * @return the report of the failure
+     */
+    private static String shrinkCase(long caseSeed, String reproducer) throws IOException {
+        Config config = randomConfig(new Random(caseSeed));
+        Failure failure = simulate(config);
+        Config smallest = shrink(config, failure.kind);
+        Failure smallestFailure = simulate(smallest);
+        Path file = writeReproducer(Paths.get(reproducer), smallest);
+        return String.format("FAIL %s%n  found with  %s%n  shrunk to   %s%n  %s%n  written to  %s%n",
+                failure, config, smallest, smallestFailure, file);
+    }
+
+    /**
+     * @param robots: robots in the building
+     * @return the heaviest item they can carry together, as Simulation checks it
+     */
+    private static int carryLimit(int robots) {
+        return robots == 1 ? ITeamState.SINGLE_MAX_WEIGHT :
+                robots == 2 ? ITeamState.DOUBLE_MAX_WEIGHT : ITeamState.TRIPLE_MAX_WEIGHT;
+    }
+
+    /**
+     * @return a random configuration, every property may also be out of range or the weight too heavy
+     */
+    private static Config randomConfig(Random random) {
+        int robots = random.nextInt(MAX_ROBOTS + 1);
+        return new Config(random.nextInt(), random.nextInt(MAX_FLOORS + 1), robots,
+                random.nextInt(MAX_MAIL + 1), random.nextInt(carryLimit(robots) * 11 / 10 + 1),
+                random.nextInt(MAX_LAST_DELIVERY_TIME + 1));
+    }
+
+    /**
+     * Simulate a configuration like the serial loop of Simulation, checking the invariants after every tick
+     * @param config: the configuration
+     * @return the first broken invariant, null if there is none
+     */
+    private static Failure simulate(Config config) {
+        if (!config.isValid()) {
+            return refuse(config);
+        }
+        Simulation.resetState();
+        InvariantChecker.reset(InvariantChecker.Mode.FULL, 1);
+        Building.FLOORS = config.floors;
+        Clock.LAST_DELIVERY_TIME = config.lastDeliveryTime;
+        HashMap<Boolean, Integer> seedMap = new HashMap<>();
+        seedMap.put(true, config.seed);
+
+        TrackedMailPool mailPool = new TrackedMailPool(
+                new MailPool(new SelectMailItemToDeliverPlan(), new SelectRobotToDeliverPlan()));
+        CheckedDelivery delivery = new CheckedDelivery();
+        try {
+            Automail automail = new Automail(mailPool, delivery, config.robots);
+            MailGenerator mailGenerator = new MailGenerator(config.mail, config.maxWeight, mailPool, seedMap);
+            mailGenerator.generateAllMail();
+
+            int[] arrivingAfter = new int[config.lastDeliveryTime + 2];
+            for (int time = config.lastDeliveryTime; time >= 0; time--) {
+                arrivingAfter[time] = arrivingAfter[time + 1] + mailGenerator.arrivalsAt(time + 1).size();
+            }
+            /* a team of three takes three ticks a floor, so this is far beyond any delivery order */
+            long horizon = config.lastDeliveryTime + (long) mailGenerator.MAIL_TO_CREATE * (6L * config.floors + 6) + 100;
+
+            while (delivery.delivered.size() < mailGenerator.MAIL_TO_CREATE) {
+                mailGenerator.step();
+                automail.step();
+                Failure failure = check(automail, mailPool, delivery, mailGenerator.MAIL_TO_CREATE,
+                        arrivingAfter[Math.min(Clock.Time(), arrivingAfter.length - 1)]);
+                if (failure != null) {
+                    return failure;
+                }
+                if (Clock.Time() > horizon) {
+                    return new Failure("no termination", Clock.Time(), String.format(
+                            "%d of %d delivered after %d ticks", delivery.delivered.size(),
+                            mailGenerator.MAIL_TO_CREATE, horizon));
+                }
+                Clock.Tick();
+            }
+            return null;
+        } catch (InvalidDispatchException | RuntimeException | AssertionError e) {
+            StackTraceElement[] stack = e.getStackTrace();
+            return new Failure(e.getClass().getSimpleName(), Clock.Time(),
+                    e.getMessage() + (stack.length == 0 ? "" : " at " + stack[0]));
+        }
+    }
+
+    /**
+     * Run a configuration which Simulation should refuse before it starts
+     * @param config: an invalid configuration
+     * @return a failure if it is not refused, or refused in another way
+     */
+    private static Failure refuse(Config config) {
+        RunResult.Status expected = config.isInRange() ?
+                RunResult.Status.NOT_ENOUGH_ROBOTS : RunResult.Status.INVALID_CONFIG;
+        RunResult result = Simulation.run(config.toProperties());
+        if (result.getStatus() != expected) {
+            return new Failure("not refused", result.getTime(), String.format("%s instead of %s%s",
+                    result.getStatus(), expected, result.getFailure() == null ? "" : ": " + result.getFailure()));
+        }
+        return null;
+    }
+
+    /**
+     * @param automail: the simulation
+     * @param mailPool: its pool
+     * @param delivery: its deliveries
+     * @param mailItems: mail items of the simulation
+     * @param yetToArrive: mail items arriving after this tick
+     * @return the first broken invariant, null if there is none
+     */
+    private static Failure check(Automail automail, TrackedMailPool mailPool, CheckedDelivery delivery,
+                                 int mailItems, int yetToArrive) {
+        int now = Clock.Time();
+        if (delivery.failure != null) {
+            return delivery.failure;
+        }
+        if (mailPool.failure != null) {
+            return mailPool.failure;
+        }
+
+        Set<MailItem> carried = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<MailItem, Robot> teams = new IdentityHashMap<>();
+        for (Robot robot: automail.getRobots()) {
+            List<MailItem> items = robot.listMailItems();
+            for (int i = 0; i < items.size(); i++) {
+                MailItem mailItem = items.get(i);
+                /* the first item is in the hand, the second in the tube, which only holds what one robot can */
+                int validWeight = i == 0 ? robot.getTeamState().validWeight() : TeamState.SINGLE.validWeight();
+                if (mailItem.getWeight() > validWeight) {
+                    return new Failure("overweight", now, String.format("%s %s carries %s",
+                            robot.getId(), robot.getTeamState(), mailItem));
+                }
+                carried.add(mailItem);
+                if (delivery.delivered.contains(mailItem)) {
+                    return new Failure("carried after delivery", now, robot.getId() + " carries " + mailItem);
+                }
+                if (mailPool.inPool.contains(mailItem)) {
+                    return new Failure("carried and in the pool", now, robot.getId() + " carries " + mailItem);
+                }
+            }
+            MailItem hand = robot.getCurrentMailItem();
+            if (hand != null && robot.getTeamState() != TeamState.SINGLE) {
+                Robot teammate = teams.putIfAbsent(hand, robot);
+                if (teammate != null && teammate.getFloor() != robot.getFloor()) {
+                    return new Failure("team apart", now, String.format("%s on floor %d, %s on floor %d carry %s",
+                            teammate.getId(), teammate.getFloor(), robot.getId(), robot.getFloor(), hand));
+                }
+            }
+        }
+
+        int accounted = yetToArrive + mailPool.inPool.size() + carried.size() + delivery.delivered.size();
+        if (accounted != mailItems) {
+            return new Failure("lost", now, String.format(
+                    "%d yet to arrive + %d in pool + %d carried + %d delivered != %d mail items",
+                    yetToArrive, mailPool.inPool.size(), carried.size(), delivery.delivered.size(), mailItems));
+        }
+        return null;
+    }
+
+    /**
+     * Shrink each property in turn, keeping a change if it still fails in the same way
+     * @param config: a failing configuration
+     * @param kind: the kind of its failure
+     * @return the smallest failing configuration found
+     */
+    private static Config shrink(Config config, String kind) {
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (Config smaller: smallerConfigs(config)) {
+                /* an invalid configuration only shrinks to another, a valid one to another valid one */
+                Failure failure = smaller.isNonNegative() && smaller.isValid() == config.isValid() ?
+                        simulate(smaller) : null;
+                if (failure != null && failure.kind.equals(kind)) {
+                    config = smaller;
+                    shrunk = true;
+                    break;
+                }
+            }
+        }
+        return config;
+    }
+
+    /**
+     * @return configurations with one property halved or decreased by one
+     */
+    private static List<Config> smallerConfigs(Config c) {
+        List<Config> smaller = new ArrayList<>();
+        for (int step: new int[]{2, 1}) {
+            smaller.add(new Config(c.seed, c.floors, c.robots, decrease(c.mail, step), c.maxWeight,
+                    c.lastDeliveryTime));
+            smaller.add(new Config(c.seed, decrease(c.floors, step), c.robots, c.mail, c.maxWeight,
+                    c.lastDeliveryTime));
+            smaller.add(new Config(c.seed, c.floors, decrease(c.robots, step), c.mail, c.maxWeight,
+                    c.lastDeliveryTime));
+            smaller.add(new Config(c.seed, c.floors, c.robots, c.mail, c.maxWeight,
+                    decrease(c.lastDeliveryTime, step)));
+            smaller.add(new Config(c.seed, c.floors, c.robots, c.mail, decrease(c.maxWeight, step),
+                    c.lastDeliveryTime));
+        }
+        return smaller;
+    }
+
+    /**
+     * @return value halved for step 2, value - 1 for step 1
+     */
+    private static int decrease(int value, int step) {return step == 2 ? value / 2 : value - 1;}
+
+    private static Path writeReproducer(Path file, Config config) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = new FileWriter(file.toFile())) {
+            config.toProperties().store(writer, "Found by tools.Fuzzer, java tools.Fuzzer --replay " + file);
+        }
+        return file;
+    }
+
+    /**
+     * @param file: a properties file
+     * @return true if simulating it breaks no invariant
+     */
+    private static boolean replay(Path file) throws IOException {
+        Properties properties = Simulation.loadProperties(file.toString());
+        Config config = Config.of(properties);
+        Trace.setOut(null);
+        Failure failure = simulate(config);
+        System.out.printf("%s: %s%n", config, failure == null ? "ok" : failure);
+        return failure == null;
+    }
+}
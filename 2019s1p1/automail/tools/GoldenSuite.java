@@ -0,0 +1,328 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * description: Runs every testResource/automail_N.properties in this JVM, in
+ *              parallel, and compares the trace of each run line by line
+ *              with test/sample_N.txt while it is printed. A run stops at its
+ *              first differing line, which is reported with its tick. The
+ *              simulation keeps its state in static fields, so each worker
+ *              thread loads its own copy of the simulation classes and runs
+ *              its scenarios one after another in it. The class loaders are
+ *              kept for repeats, so later repeats run warm. Scenarios
+ *              without a golden file are run and only reported. A scenario
+ *              not finished within 10 minutes of the start of a repeat fails
+ *              as timed out, and its worker is abandoned.
+ *
+ * usage: java tools.GoldenSuite [--repeat n] [--threads n] [project directory, default .]
+ *        exits with 1 if any run differs from its golden file
+ **/
+
+public class GoldenSuite {
+    private static final Pattern SCENARIO = Pattern.compile("automail_(\\d+)\\.properties");
+    private static final Pattern TICK = Pattern.compile("^T:\\s*(\\d+)");
+
+    /**
+     * time all scenarios of a repeat get, scenarios not finished by then fail
+     */
+    private static final long TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    /**
+     * a scenario and its golden trace, null if it has none
+     */
+    private static class Scenario {
+        private final String name;
+        private final Path properties;
+        private final List<String> golden;
+
+        private Scenario(String name, Path properties, List<String> golden) {
+            this.name = name;
+            this.properties = properties;
+            this.golden = golden;
+        }
+    }
+
+    /**
+     * the outcome of running a scenario once
+     */
+    private static class Result {
+        private final Scenario scenario;
+        private final boolean passed;
+        private final String message;
+        private final long nanos;
+
+        private Result(Scenario scenario, boolean passed, String message, long nanos) {
+            this.scenario = scenario;
+            this.passed = passed;
+            this.message = message;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * thrown out of the simulation at the first line which differs from the golden file
+     */
+    private static class Mismatch extends RuntimeException {
+        private Mismatch(String message) {super(message, null, false, false);}
+    }
+
+    /**
+     * Compares the bytes written to it with a golden trace, a line at a time
+     */
+    private static class GoldenStream extends OutputStream {
+        private final List<String> golden;
+        private byte[] line = new byte[256];
+        private int length = 0;
+        private int lineNumber = 0;
+        private String lastTick = "none";
+
+        private GoldenStream(List<String> golden) {this.golden = golden;}
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                compareLine(new String(line, 0, length, Charset.defaultCharset()));
+                length = 0;
+            } else {
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, 2 * length);
+                }
+                line[length++] = (byte) b;
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) {
+            for (int i = offset; i < offset + count; i++) {
+                write(bytes[i]);
+            }
+        }
+
+        private void compareLine(String actual) {
+            Matcher tick = TICK.matcher(actual);
+            if (tick.find()) {
+                lastTick = tick.group(1);
+            }
+            String expected = lineNumber < golden.size() ? golden.get(lineNumber) : null;
+            lineNumber++;
+            if (!actual.equals(expected)) {
+                throw new Mismatch(String.format("line %d, tick %s%n    expected: %s%n    actual:   %s",
+                        lineNumber, lastTick, expected == null ? "<end of file>" : expected, actual));
+            }
+        }
+
+        /**
+         * @throws Mismatch if the run printed less than the golden file
+         */
+        private void finish() {
+            if (length > 0) {
+                compareLine(new String(line, 0, length, Charset.defaultCharset()));
+            }
+            if (lineNumber < golden.size()) {
+                throw new Mismatch(String.format("line %d, tick %s%n    expected: %s%n    actual:   <end of output>",
+                        lineNumber + 1, lastTick, golden.get(lineNumber)));
+            }
+        }
+    }
+
+    /**
+     * discards the trace of scenarios without a golden file
+     */
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    public static void main(String[] args) throws Exception {
+        int repeat = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String projectDirectory = ".";
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--repeat")) {
+                repeat = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                projectDirectory = args[i];
+            }
+        }
+
+        List<Scenario> scenarios = findScenarios(Paths.get(projectDirectory));
+        if (scenarios.isEmpty()) {
+            System.err.println("No testResource/automail_N.properties under " + projectDirectory);
+            System.exit(2);
+        }
+        threads = Math.max(1, Math.min(threads, scenarios.size()));
+        URL[] classPath = classPath();
+        ClassLoader[] loaders = new ClassLoader[threads];
+        for (int i = 0; i < threads; i++) {
+            loaders[i] = new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader());
+        }
+
+        boolean passed = true;
+        for (int r = 1; r <= repeat; r++) {
+            long start = System.nanoTime();
+            List<Result> results = runAll(scenarios, loaders);
+            long wall = System.nanoTime() - start;
+            passed = true;
+            for (Result result: results) {
+                passed &= result.passed;
+                System.out.printf("%-22s %-4s %7.1f ms%s%n", result.scenario.name, result.passed ? "ok" : "FAIL",
+                        result.nanos / 1e6, result.message.isEmpty() ? "" : "  " + result.message);
+            }
+            System.out.printf("Run %d: %d scenarios on %d threads in %.1f ms: %s%n", r, results.size(), threads,
+                    wall / 1e6, passed ? "passed" : "FAILED");
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    /**
+     * @param projectDirectory: directory holding testResource and test
+     * @return the scenarios in order of their number
+     */
+    private static List<Scenario> findScenarios(Path projectDirectory) throws IOException {
+        File[] files = projectDirectory.resolve("testResource").toFile().listFiles();
+        List<Scenario> scenarios = new ArrayList<>();
+        if (files == null) {
+            return scenarios;
+        }
+        Arrays.sort(files, (a, b) -> Integer.compare(number(a), number(b)));
+        for (File file: files) {
+            Matcher matcher = SCENARIO.matcher(file.getName());
+            if (matcher.matches()) {
+                Path golden = projectDirectory.resolve("test").resolve("sample_" + matcher.group(1) + ".txt");
+                scenarios.add(new Scenario(file.getName(), file.toPath(),
+                        Files.exists(golden) ? Files.readAllLines(golden, Charset.defaultCharset()) : null));
+            }
+        }
+        return scenarios;
+    }
+
+    private static int number(File file) {
+        Matcher matcher = SCENARIO.matcher(file.getName());
+        return matcher.matches() ? Integer.parseInt(matcher.group(1)) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return where the simulation classes are loaded from, the location of this class
+     */
+    private static URL[] classPath() {
+        return new URL[]{GoldenSuite.class.getProtectionDomain().getCodeSource().getLocation()};
+    }
+
+    /**
+     * run every scenario once, each worker thread in its own class loader
+     */
+    private static List<Result> runAll(List<Scenario> scenarios, ClassLoader[] loaders) throws InterruptedException {
+        ConcurrentLinkedQueue<Scenario> queue = new ConcurrentLinkedQueue<>(scenarios);
+        ConcurrentLinkedQueue<Result> finished = new ConcurrentLinkedQueue<>();
+        Thread[] workers = new Thread[loaders.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < loaders.length; i++) {
+            ClassLoader loader = loaders[i];
+            workers[i] = new Thread(() -> {
+                Scenario scenario;
+                while ((scenario = queue.poll()) != null) {
+                    finished.add(run(scenario, loader));
+                }
+            }, "golden-" + i);
+            /* a hung worker is abandoned, it must not keep the JVM alive */
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        long deadline = start + TIMEOUT_NANOS;
+        for (Thread worker: workers) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining > 0) {
+                TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+            }
+        }
+        /* workers still running are abandoned with their class loader, and start no further scenario */
+        queue.clear();
+        for (int i = 0; i < workers.length; i++) {
+            if (workers[i].isAlive()) {
+                workers[i].interrupt();
+                loaders[i] = new URLClassLoader(classPath(), ClassLoader.getPlatformClassLoader());
+            }
+        }
+        List<Result> results = new ArrayList<>();
+        for (Scenario scenario: scenarios) {
+            Result scenarioResult = null;
+            for (Result result: finished) {
+                if (result.scenario == scenario) {
+                    scenarioResult = result;
+                }
+            }
+            results.add(scenarioResult != null ? scenarioResult :
+                    new Result(scenario, false, "timed out", System.nanoTime() - start));
+        }
+        return results;
+    }
+
+    /**
+     * @param scenario: the scenario to run
+     * @param loader: the class loader holding this thread's copy of the simulation
+     * @return how the run compared with the golden file
+     */
+    private static Result run(Scenario scenario, ClassLoader loader) {
+        long start = System.nanoTime();
+        GoldenStream goldenStream = scenario.golden == null ? null : new GoldenStream(scenario.golden);
+        PrintStream out = new PrintStream(goldenStream == null ? DISCARD : goldenStream);
+        try {
+            Class<?> trace = Class.forName("automail.Trace", true, loader);
+            Class<?> simulation = Class.forName("automail.Simulation", true, loader);
+            Method setOut = trace.getMethod("setOut", PrintStream.class);
+            Properties properties = (Properties) simulation.getMethod("loadProperties", String.class)
+                    .invoke(null, scenario.properties.toString());
+            setOut.invoke(null, out);
+            Object runResult;
+            try {
+                runResult = simulation.getMethod("run", Properties.class).invoke(null, properties);
+            } finally {
+                setOut.invoke(null, System.out);
+            }
+            /* a RunResult of this thread's copy of the simulation */
+            if (!(Boolean) runResult.getClass().getMethod("isCompleted").invoke(runResult)) {
+                Object failure = runResult.getClass().getMethod("getFailure").invoke(runResult);
+                if (failure instanceof Mismatch) {
+                    return new Result(scenario, false, ((Mismatch) failure).getMessage(), System.nanoTime() - start);
+                }
+                /* a scenario without a golden file may be meant to fail */
+                return new Result(scenario, goldenStream == null, "failed: " + runResult, System.nanoTime() - start);
+            }
+            if (goldenStream == null) {
+                return new Result(scenario, true, "(no golden file)", System.nanoTime() - start);
+            }
+            goldenStream.finish();
+            return new Result(scenario, true, "", System.nanoTime() - start);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Mismatch) {
+                return new Result(scenario, false, cause.getMessage(), System.nanoTime() - start);
+            }
+            /* a scenario without a golden file may be meant to fail */
+            return new Result(scenario, goldenStream == null, "threw " + cause, System.nanoTime() - start);
+        } catch (Mismatch e) {
+            return new Result(scenario, false, e.getMessage(), System.nanoTime() - start);
+        } catch (ReflectiveOperationException e) {
+            return new Result(scenario, false, "can not run: " + e, System.nanoTime() - start);
+        }
+    }
+}
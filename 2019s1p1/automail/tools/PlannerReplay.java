@@ -0,0 +1,167 @@
+package tools;
+
+import automail.Building;
+import automail.MailItem;
+import automail.PriorityMailItem;
+import strategies.ISelectMailItemToDeliverPlan;
+import telemetry.DecisionCorpusReader;
+import telemetry.DecisionCorpusReader.Decision;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * description: Replays the decisions of a corpus recorded with
+ *              Decision_Corpus_File through mail item planners and compares
+ *              the plans each makes on the same decisions: how often a plan
+ *              can be dispatched with the robots waiting, the mail items and
+ *              robots of a dispatched plan, the priority mail it takes, and
+ *              the score its mail items would get if the plan were carried
+ *              out at once. Later decisions are the recorded ones, not the
+ *              ones the planner would lead to, so these measure each
+ *              decision on its own.
+ *
+ *              The score of a plan is estimated as in the simulation: the
+ *              robots leave the mail room the next tick, a team moves a floor
+ *              every 3 ticks to its mail item and then splits, and a robot on
+ *              its own delivers its mail items in the order of the plan, a
+ *              floor a tick. Lower is better. The time per decision is only
+ *              a rough figure; PlannerReplayBenchmark measures it with JMH.
+ *
+ * usage: java tools.PlannerReplay <corpus file> [planner class ...]
+ *        the default planner is strategies.SelectMailItemToDeliverPlan
+ **/
+
+public class PlannerReplay {
+    /**
+     * ticks for a team to move a floor, as RobotTeam
+     */
+    private static final int TEAM_SLOW_FACTOR = 3;
+
+    /**
+     * timed passes over the corpus, the fastest is reported
+     */
+    private static final int TIMED_PASSES = 5;
+
+    /**
+     * what the plans of a planner add up to over a corpus
+     */
+    private static class Quality {
+        private long decisions = 0;
+        private long dispatched = 0;
+        private long mailItems = 0;
+        private long robots = 0;
+        private long priorityMailItems = 0;
+        private double score = 0;
+        private double nanosPerDecision = 0;
+    }
+
+    public static void main(String[] args) throws IOException, ReflectiveOperationException {
+        if (args.length < 1) {
+            System.err.println("Usage: java tools.PlannerReplay <corpus file> [planner class ...]");
+            System.exit(2);
+        }
+        List<Decision> decisions = DecisionCorpusReader.readAll(Paths.get(args[0]));
+        List<String> planners = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            planners.add(args[i]);
+        }
+        if (planners.isEmpty()) {
+            planners.add("strategies.SelectMailItemToDeliverPlan");
+        }
+
+        System.out.printf("%d decisions%n", decisions.size());
+        System.out.printf("%-44s %10s %10s %10s %10s %12s %12s%n", "planner", "dispatched", "items/plan",
+                "robots", "priority", "score/item", "ns/decision");
+        for (String plannerClass: planners) {
+            ISelectMailItemToDeliverPlan planner = (ISelectMailItemToDeliverPlan)
+                    Class.forName(plannerClass).getDeclaredConstructor().newInstance();
+            Quality quality = replay(planner, decisions);
+            long dispatched = Math.max(1, quality.dispatched);
+            System.out.printf("%-44s %9.1f%% %10.2f %10.2f %10.2f %12.1f %12.0f%n", plannerClass,
+                    100.0 * quality.dispatched / Math.max(1, quality.decisions),
+                    (double) quality.mailItems / dispatched, (double) quality.robots / dispatched,
+                    (double) quality.priorityMailItems / dispatched,
+                    quality.score / Math.max(1, quality.mailItems), quality.nanosPerDecision);
+        }
+    }
+
+    /**
+     * @param planner: the planner to replay the decisions through
+     * @param decisions: the decisions of a corpus
+     * @return the quality of its plans and the time it took per decision
+     */
+    private static Quality replay(ISelectMailItemToDeliverPlan planner, List<Decision> decisions) {
+        Quality quality = new Quality();
+        for (Decision decision: decisions) {
+            /* the planner gets its own copy, as from MailPool */
+            List<MailItem> plan = planner.generateDeliverMailItemPlan(new ArrayList<>(decision.getPool()));
+            quality.decisions++;
+            if (plan.isEmpty() || !planner.hasEnoughRobot(decision.getWaitingRobots(), plan)) {
+                continue;
+            }
+            int robots = planner.getPlanRequiredRobot(plan);
+            quality.dispatched++;
+            quality.mailItems += plan.size();
+            quality.robots += robots;
+            for (MailItem mailItem: plan) {
+                quality.priorityMailItems += mailItem instanceof PriorityMailItem ? 1 : 0;
+            }
+            quality.score += estimatedScore(decision.getTick(), plan, robots);
+        }
+
+        long fastest = Long.MAX_VALUE;
+        int planned = 0;
+        for (int pass = 0; pass < TIMED_PASSES; pass++) {
+            long start = System.nanoTime();
+            for (Decision decision: decisions) {
+                planned += planner.generateDeliverMailItemPlan(new ArrayList<>(decision.getPool())).size();
+            }
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        /* keeps the timed plans from being optimized away */
+        if (planned < 0) {
+            System.out.println();
+        }
+        quality.nanosPerDecision = decisions.isEmpty() ? 0 : (double) fastest / decisions.size();
+        return quality;
+    }
+
+    /**
+     * @param tick: tick of the decision
+     * @param plan: mail items of a dispatched plan, in the order of the plan
+     * @param robots: robots carrying it
+     * @return the score of its mail items if it were carried out from the next tick
+     */
+    private static double estimatedScore(int tick, List<MailItem> plan, int robots) {
+        MailItem first = plan.get(0);
+        int firstDelivered = tick + 1 + (first.getDestinationFloor() - Building.MAILROOM_LOCATION) *
+                (robots > 1 ? TEAM_SLOW_FACTOR : 1);
+        double score = score(first, firstDelivered);
+        int delivered = firstDelivered;
+        int floor = first.getDestinationFloor();
+        for (MailItem mailItem: plan.subList(1, plan.size())) {
+            int distance = Math.abs(mailItem.getDestinationFloor() - floor);
+            if (robots > 1) {
+                /* each member carries its own mail item on from the team's floor */
+                score += score(mailItem, firstDelivered + distance);
+            } else {
+                delivered += distance;
+                floor = mailItem.getDestinationFloor();
+                score += score(mailItem, delivered);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * @return the score of a mail item delivered at a tick, as Simulation
+     */
+    private static double score(MailItem mailItem, int deliveryTime) {
+        double priorityWeight = mailItem instanceof PriorityMailItem ?
+                ((PriorityMailItem) mailItem).getPriorityLevel() : 0;
+        return Math.pow(Math.max(0, deliveryTime - mailItem.getArrivalTime()), 1.2) * (1 + Math.sqrt(priorityWeight));
+    }
+}
@@ -0,0 +1,440 @@
+package tools;
+
+import automail.Simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * description: Results of completed runs, keyed by the SHA-256 of an engine
+ *              version and the properties of the run, so a sweep or a CI job
+ *              running the same scenario again gets its result without
+ *              running it. The properties are normalized first: the default
+ *              properties are filled in, values trimmed, keys sorted, and the
+ *              properties which only change how a run is executed or
+ *              reported are left out. The engine version is a hash of the
+ *              simulation's class files, so changing a strategy or the engine
+ *              misses every older entry. Only runs with a Seed are cached,
+ *              since others are random.
+ *
+ *              The entries are fixed size records appended to a file, each
+ *              with a CRC. Opening the file indexes the offset of every key,
+ *              and cuts off a torn record left by a crash. The latest entries
+ *              read are kept in a LRU in front of the file. The hits, misses
+ *              and the run time the hits saved are reported. Thread safe, and
+ *              several processes can share the file: a record is appended and
+ *              a torn one cut off only under a lock on the file, and records
+ *              other processes appended are indexed before a miss or an add.
+ *              One instance per file in a JVM, as the lock is held per JVM.
+ *
+ * usage: java tools.ResultCache cache-file
+ *        prints the entries and the run time they hold
+ **/
+
+public class ResultCache implements Closeable {
+    private static final byte[] MAGIC = "ARC1".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * key, status, time, delivered, score, run nanos, CRC of the rest
+     */
+    private static final int KEY_BYTES = 32;
+    private static final int STATUS_BYTES = 24;
+    private static final int RECORD_BYTES = KEY_BYTES + STATUS_BYTES + 4 + 4 + 8 + 8 + 4;
+
+    /**
+     * packages of the classes which decide the result of a run
+     */
+    private static final String[] ENGINE_PACKAGES = {"automail/", "strategies/", "exceptions/"};
+
+    /**
+     * properties which do not change the result of a run
+     */
+    private static final Set<String> RESULT_NEUTRAL = new HashSet<>(Arrays.asList(
+            "Step_Parallelism", "Pipelined", "Actors", "Actor_Response_Nanos", "Tick_Report", "Tick_Profile",
+            "Tick_Profile_File", "Latency_Report", "Fleet_Report", "Metrics_Port", "Tick_Series_File",
+            "Delivery_Record_File", "Shared_Telemetry_File", "Decision_Corpus_File", "Invariant_Check",
+            "Invariant_Sample_Every", "Workload_Cache", "Workload_Cache_Dir"));
+
+    public static final int DEFAULT_LRU_ENTRIES = 4096;
+
+    /**
+     * the result of a completed run
+     */
+    public static class Entry {
+        private final String status;
+        private final int time;
+        private final int delivered;
+        private final double score;
+        private final long runNanos;
+
+        public Entry(String status, int time, int delivered, double score, long runNanos) {
+            this.status = status;
+            this.time = time;
+            this.delivered = delivered;
+            this.score = score;
+            this.runNanos = runNanos;
+        }
+
+        public String getStatus() {return status;}
+
+        public int getTime() {return time;}
+
+        public int getDelivered() {return delivered;}
+
+        public double getScore() {return score;}
+
+        /**
+         * @return how long the run took, what a hit saves
+         */
+        public long getRunNanos() {return runNanos;}
+
+        /**
+         * @return as RunResult prints it
+         */
+        @Override
+        public String toString() {
+            return String.format("%s at T: %d, %d delivered, score %.2f", status, time, delivered, score);
+        }
+    }
+
+    private final FileChannel file;
+    private final String version;
+
+    /**
+     * file offset of every entry
+     */
+    private final Map<String, Long> index = new HashMap<>();
+
+    /**
+     * end of the records indexed so far, other processes may have appended after it
+     */
+    private long indexedSize = MAGIC.length;
+    private final LinkedHashMap<String, Entry> recent;
+
+    private long hits = 0;
+    private long lruHits = 0;
+    private long misses = 0;
+    private long savedNanos = 0;
+    private long added = 0;
+
+    /**
+     * Open the cache, creating its file if there is none
+     * @param path: the cache file
+     * @param version: the engine version, see engineVersion
+     * @param lruEntries: entries kept in memory
+     * @throws IOException if the file can not be read or is not a cache file
+     */
+    public ResultCache(Path path, String version, int lruEntries) throws IOException {
+        this.version = version;
+        recent = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {return size() > lruEntries;}
+        };
+        file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = file.lock();
+            try {
+                if (file.size() == 0) {
+                    file.write(ByteBuffer.wrap(MAGIC), 0);
+                }
+                ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+                file.read(magic, 0);
+                if (!Arrays.equals(magic.array(), MAGIC)) {
+                    throw new IOException(path + " is not a result cache");
+                }
+                indexAppended(true);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * index every whole record with a good CRC after those indexed so far
+     * @param locked: the file is locked, so a bad record is torn by a crash and
+     *                the file is cut after the last good one; otherwise it may be
+     *                still being written and is indexed by a later call
+     */
+    private void indexAppended(boolean locked) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(RECORD_BYTES * 1024);
+        byte[] record = new byte[RECORD_BYTES];
+        long offset = indexedSize;
+        long size = file.size();
+        scan:
+        while (offset + RECORD_BYTES <= size) {
+            chunk.clear();
+            chunk.limit((int) Math.min(chunk.capacity(), (size - offset) / RECORD_BYTES * RECORD_BYTES));
+            readFully(chunk, offset);
+            chunk.flip();
+            while (chunk.hasRemaining()) {
+                chunk.get(record);
+                if (!validRecord(record)) {
+                    break scan;
+                }
+                index.put(keyOf(record), offset);
+                offset += RECORD_BYTES;
+            }
+        }
+        indexedSize = offset;
+        if (locked && offset < size) {
+            file.truncate(offset);
+        }
+    }
+
+    /**
+     * fill the buffer from the file at the offset
+     */
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, offset + buffer.position() - start) < 0) {
+                throw new IOException("Result cache ends inside a record");
+            }
+        }
+    }
+
+    /**
+     * @param codeSource: where the simulation classes are loaded from, a directory or a jar
+     * @return a hash of the simulation classes
+     * @throws IOException if they can not be read
+     */
+    public static String engineVersion(URL codeSource) throws IOException {
+        MessageDigest digest = sha256();
+        Path root;
+        try {
+            root = Paths.get(codeSource.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Can not read the classes at " + codeSource, e);
+        }
+        if (Files.isDirectory(root)) {
+            List<Path> classes = new ArrayList<>();
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(file -> isEngineClass(root.relativize(file).toString().replace('\\', '/')))
+                        .forEach(classes::add);
+            }
+            Collections.sort(classes);
+            for (Path file: classes) {
+                digest.update(root.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+                digest.update(Files.readAllBytes(file));
+            }
+        } else {
+            try (JarFile jar = new JarFile(root.toFile())) {
+                TreeSet<String> classes = new TreeSet<>();
+                jar.stream().map(JarEntry::getName).filter(ResultCache::isEngineClass).forEach(classes::add);
+                for (String name: classes) {
+                    digest.update(name.getBytes(StandardCharsets.UTF_8));
+                    digest.update(jar.getInputStream(jar.getEntry(name)).readAllBytes());
+                }
+            }
+        }
+        return hex(digest.digest()).substring(0, 16);
+    }
+
+    private static boolean isEngineClass(String name) {
+        if (!name.endsWith(".class")) {
+            return false;
+        }
+        for (String enginePackage: ENGINE_PACKAGES) {
+            if (name.startsWith(enginePackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param properties: the properties of a run
+     * @return its key, null if it has no Seed and so can not be cached
+     */
+    public String keyOf(Properties properties) {
+        Properties effective = Simulation.effectiveProperties(properties);
+        if (effective.getProperty("Seed", "").trim().isEmpty()) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(version).append('\n');
+        for (String name: new TreeSet<>(effective.stringPropertyNames())) {
+            if (!RESULT_NEUTRAL.contains(name)) {
+                normalized.append(name).append('=').append(effective.getProperty(name).trim()).append('\n');
+            }
+        }
+        return hex(sha256().digest(normalized.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param key: from keyOf, null for a miss
+     * @return the entry, null if there is none
+     * @throws IOException if the file can not be read
+     */
+    public synchronized Entry get(String key) throws IOException {
+        Entry entry = key == null ? null : recent.get(key);
+        if (entry != null) {
+            lruHits++;
+        } else if (key != null) {
+            if (!index.containsKey(key)) {
+                /* another process may have added it */
+                indexAppended(false);
+            }
+            if (index.containsKey(key)) {
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+                readFully(record, index.get(key));
+                entry = entryOf(record.array());
+                recent.put(key, entry);
+            }
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        savedNanos += entry.runNanos;
+        return entry;
+    }
+
+    /**
+     * Add the result of a completed run
+     * @param key: from keyOf, nothing is added for null
+     * @param entry: the result
+     * @throws IOException if the file can not be written
+     */
+    public synchronized void put(String key, Entry entry) throws IOException {
+        if (key == null || index.containsKey(key)) {
+            return;
+        }
+        /* appends of other processes wait for the lock, so the end of the file is this record's */
+        FileLock lock = file.lock();
+        try {
+            indexAppended(true);
+            if (index.containsKey(key)) {
+                return;
+            }
+            long offset = file.size();
+            ByteBuffer record = ByteBuffer.wrap(recordOf(key, entry));
+            while (record.hasRemaining()) {
+                file.write(record, offset + record.position());
+            }
+            indexedSize = offset + RECORD_BYTES;
+            index.put(key, offset);
+        } finally {
+            lock.release();
+        }
+        recent.put(key, entry);
+        added++;
+    }
+
+    /**
+     * @return the hits, misses, hit rate and the run time the hits saved
+     */
+    public synchronized String report() {
+        long lookups = hits + misses;
+        return String.format("cache entries %d added %d lookups %d hits %d (%d in memory) misses %d "
+                        + "hit rate %.1f%% saved %.3f s", index.size(), added, lookups, hits, lruHits, misses,
+                lookups == 0 ? 0.0 : 100.0 * hits / lookups, savedNanos / 1e9);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {file.close();}
+
+    private static byte[] recordOf(String key, Entry entry) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        for (int i = 0; i < KEY_BYTES; i++) {
+            record.put((byte) Integer.parseInt(key.substring(2 * i, 2 * i + 2), 16));
+        }
+        byte[] status = Arrays.copyOf(entry.status.getBytes(StandardCharsets.US_ASCII), STATUS_BYTES);
+        record.put(status);
+        record.putInt(entry.time).putInt(entry.delivered).putDouble(entry.score).putLong(entry.runNanos);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, RECORD_BYTES - 4);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    private static boolean validRecord(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, RECORD_BYTES - 4);
+        return ByteBuffer.wrap(record).getInt(RECORD_BYTES - 4) == (int) crc.getValue();
+    }
+
+    private static String keyOf(byte[] record) {return hex(Arrays.copyOf(record, KEY_BYTES));}
+
+    private static Entry entryOf(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record, KEY_BYTES, RECORD_BYTES - KEY_BYTES);
+        byte[] status = new byte[STATUS_BYTES];
+        buffer.get(status);
+        int length = 0;
+        while (length < STATUS_BYTES && status[length] != 0) {
+            length++;
+        }
+        return new Entry(new String(status, 0, length, StandardCharsets.US_ASCII), buffer.getInt(), buffer.getInt(),
+                buffer.getDouble(), buffer.getLong());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b: bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("usage: java tools.ResultCache cache-file");
+            System.exit(2);
+        }
+        if (!Files.exists(Paths.get(args[0]))) {
+            System.err.println("No result cache at " + args[0]);
+            System.exit(2);
+        }
+        try (ResultCache cache = new ResultCache(Paths.get(args[0]), "", 0)) {
+            long runNanos = 0;
+            Map<String, Integer> byStatus = new LinkedHashMap<>();
+            for (long offset: cache.index.values()) {
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+                cache.readFully(record, offset);
+                Entry entry = entryOf(record.array());
+                runNanos += entry.runNanos;
+                byStatus.merge(entry.status, 1, Integer::sum);
+            }
+            System.out.printf("%s: %d entries %s, %.3f s of runs%n", args[0], cache.index.size(), byStatus,
+                    runNanos / 1e9);
+        }
+    }
+}
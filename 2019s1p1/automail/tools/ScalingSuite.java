@@ -0,0 +1,293 @@
+package tools;
+
+import automail.Clock;
+import automail.RunResult;
+import automail.Simulation;
+import automail.Trace;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * description: Scalability scenarios which grow the mail count (10^3 to 10^7),
+ *              the floors (up to thousands) and the robots independently from
+ *              a base scenario. Every scenario is written as a properties file
+ *              and simulated in a fresh JVM, which reports ns/tick, peak heap,
+ *              allocated bytes and wall time. For each dimension the growth
+ *              exponent of the wall time and of the allocations between two
+ *              neighbouring scenarios is computed, and an exponent above the
+ *              threshold is flagged as super-linear. A scenario running past
+ *              the timeout is flagged as well and larger ones are skipped.
+ *
+ * usage: java tools.ScalingSuite [max mail exponent, default 7] [timeout seconds, default 300]
+ *                                [output directory, default scaling]
+ **/
+
+public class ScalingSuite {
+    /**
+     * growth exponent above which cost counts as super-linear
+     */
+    private static final double SUPER_LINEAR_EXPONENT = 1.25;
+
+    /**
+     * base scenario, each dimension is grown from it with the others fixed
+     */
+    private static final int BASE_MAIL = 10_000;
+    private static final int BASE_FLOORS = 10;
+    private static final int BASE_ROBOTS = 10;
+
+    /**
+     * mail arriving per tick on average, Last_Delivery_Time grows with the mail
+     */
+    private static final int MAIL_PER_TICK = 1;
+
+    private static final int[] FLOORS = {10, 100, 1000, 5000};
+    private static final int[] ROBOTS = {10, 100, 1000, 10000};
+
+    /**
+     * marks the result line of a probe among its other output
+     */
+    private static final String RESULT_PREFIX = "scaling-result ";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals("--probe")) {
+            probe(args[1]);
+            return;
+        }
+        int maxMailExponent = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+        long timeoutSeconds = args.length > 1 ? Long.parseLong(args[1]) : 300;
+        File outputDirectory = new File(args.length > 2 ? args[2] : "scaling");
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Can not create " + outputDirectory);
+        }
+
+        List<Integer> mailCounts = new ArrayList<>();
+        for (int exponent = 3; exponent <= maxMailExponent; exponent++) {
+            mailCounts.add((int) Math.pow(10, exponent));
+        }
+
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-8s %10s %7s %7s %10s %12s %12s %14s %12s%n", "Grow", "Mail", "Floors", "Robots",
+                "Ticks", "ns/tick", "Peak MB", "Allocated MB", "Wall ms");
+        results.addAll(runDimension("mail", mailCounts, mail -> new Scenario(mail, BASE_FLOORS, BASE_ROBOTS),
+                outputDirectory, timeoutSeconds));
+        results.addAll(runDimension("floors", toList(FLOORS), floors -> new Scenario(BASE_MAIL, floors, BASE_ROBOTS),
+                outputDirectory, timeoutSeconds));
+        results.addAll(runDimension("robots", toList(ROBOTS), robots -> new Scenario(BASE_MAIL, BASE_FLOORS, robots),
+                outputDirectory, timeoutSeconds));
+
+        try (PrintStream csv = new PrintStream(new File(outputDirectory, "scaling-results.csv"))) {
+            csv.println("dimension,mail,floors,robots,ticks,ns_per_tick,peak_heap_bytes,allocated_bytes,wall_nanos,"
+                    + "timed_out");
+            for (Result result: results) {
+                csv.printf("%s,%d,%d,%d,%d,%d,%d,%d,%d,%b%n", result.dimension, result.scenario.mail,
+                        result.scenario.floors, result.scenario.robots, result.ticks, result.nanosPerTick(),
+                        result.peakHeapBytes, result.allocatedBytes, result.wallNanos, result.timedOut);
+            }
+        }
+    }
+
+    /**
+     * Run the scenarios of a dimension from small to large and report its growth
+     * @param dimension: name of the dimension
+     * @param sizes: sizes of the dimension, ascending
+     * @param scenarioOf: the scenario of a size
+     * @return results of the scenarios run
+     */
+    private static List<Result> runDimension(String dimension, List<Integer> sizes,
+                                             IntFunction<Scenario> scenarioOf,
+                                             File outputDirectory, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        List<Result> results = new ArrayList<>();
+        for (int size: sizes) {
+            Scenario scenario = scenarioOf.apply(size);
+            Result result = runScenario(dimension, scenario, outputDirectory, timeoutSeconds);
+            results.add(result);
+            if (result.timedOut) {
+                System.out.printf("%-8s %10d %7d %7d   timed out after %d s, larger scenarios skipped%n", dimension,
+                        scenario.mail, scenario.floors, scenario.robots, timeoutSeconds);
+                break;
+            }
+            System.out.printf("%-8s %10d %7d %7d %10d %12d %12.1f %14.1f %12d%n", dimension, scenario.mail,
+                    scenario.floors, scenario.robots, result.ticks, result.nanosPerTick(),
+                    result.peakHeapBytes / 1e6, result.allocatedBytes / 1e6, result.wallNanos / 1_000_000);
+        }
+
+        for (int i = 1; i < results.size(); i++) {
+            Result smaller = results.get(i - 1);
+            Result larger = results.get(i);
+            double growth = (double) sizes.get(i) / sizes.get(i - 1);
+            if (larger.timedOut) {
+                System.out.printf("  %s %d -> %d: SUPER-LINEAR, timed out%n", dimension, sizes.get(i - 1),
+                        sizes.get(i));
+                continue;
+            }
+            double timeExponent = exponent(smaller.wallNanos, larger.wallNanos, growth);
+            double allocationExponent = exponent(smaller.allocatedBytes, larger.allocatedBytes, growth);
+            boolean superLinear = timeExponent > SUPER_LINEAR_EXPONENT || allocationExponent > SUPER_LINEAR_EXPONENT;
+            System.out.printf("  %s %d -> %d: time ~ n^%.2f, allocations ~ n^%.2f%s%n", dimension,
+                    sizes.get(i - 1), sizes.get(i), timeExponent, allocationExponent,
+                    superLinear ? "  SUPER-LINEAR" : "");
+        }
+        return results;
+    }
+
+    /**
+     * @return e such that larger = smaller * growth^e
+     */
+    private static double exponent(long smaller, long larger, double growth) {
+        return Math.log((double) Math.max(larger, 1) / Math.max(smaller, 1)) / Math.log(growth);
+    }
+
+    /**
+     * Write the scenario's properties and simulate it in a fresh JVM
+     * @return the probe's measurements
+     */
+    private static Result runScenario(String dimension, Scenario scenario, File outputDirectory, long timeoutSeconds)
+            throws IOException, InterruptedException {
+        File propertiesFile = new File(outputDirectory, scenario.name() + ".properties");
+        try (OutputStream out = new FileOutputStream(propertiesFile)) {
+            scenario.properties().store(out, "Scalability scenario, grown in " + dimension);
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(
+                new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"),
+                ScalingSuite.class.getName(), "--probe", propertiesFile.getPath());
+        processBuilder.redirectErrorStream(true);
+        File log = new File(outputDirectory, scenario.name() + ".log");
+        processBuilder.redirectOutput(log);
+        Process process = processBuilder.start();
+        if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+            return new Result(dimension, scenario, true);
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    String[] fields = line.substring(RESULT_PREFIX.length()).split(" ");
+                    Result result = new Result(dimension, scenario, false);
+                    result.ticks = Long.parseLong(fields[0]);
+                    result.wallNanos = Long.parseLong(fields[1]);
+                    result.peakHeapBytes = Long.parseLong(fields[2]);
+                    result.allocatedBytes = Long.parseLong(fields[3]);
+                    return result;
+                }
+            }
+        }
+        throw new IllegalStateException("Scenario " + scenario.name() + " failed, see " + log);
+    }
+
+    /**
+     * Simulate a scenario in this JVM and print the result line. The base
+     * scenario is simulated first to warm up.
+     * @param propertiesFile: the scenario
+     */
+    private static void probe(String propertiesFile) throws IOException {
+        Trace.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        completed(Simulation.run(new Scenario(1000, BASE_FLOORS, BASE_ROBOTS).properties()));
+        System.gc();
+
+        Properties properties = Simulation.loadProperties(propertiesFile);
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        RunResult result = Simulation.run(properties);
+        long wallNanos = System.nanoTime() - start;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool: heapPools) {
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        completed(result);
+        System.out.println(RESULT_PREFIX + Clock.Time() + " " + wallNanos + " " + peakHeapBytes + " " +
+                allocatedBytes);
+    }
+
+    /**
+     * @param result: result of a probe run
+     * @throws IllegalStateException if the run failed, ending the probe
+     */
+    private static void completed(RunResult result) {
+        if (!result.isCompleted()) {
+            throw new IllegalStateException(result.toString(), result.getFailure());
+        }
+    }
+
+    private static List<Integer> toList(int[] sizes) {
+        List<Integer> list = new ArrayList<>();
+        for (int size: sizes) {
+            list.add(size);
+        }
+        return list;
+    }
+
+    /**
+     * a generated workload
+     */
+    private static class Scenario {
+        private final int mail;
+        private final int floors;
+        private final int robots;
+
+        private Scenario(int mail, int floors, int robots) {
+            this.mail = mail;
+            this.floors = floors;
+            this.robots = robots;
+        }
+
+        private String name() {return "mail" + mail + "_floors" + floors + "_robots" + robots;}
+
+        private Properties properties() {
+            Properties properties = new Properties();
+            properties.setProperty("Seed", "30006");
+            properties.setProperty("Floors", String.valueOf(floors));
+            properties.setProperty("Mail_to_Create", String.valueOf(mail));
+            properties.setProperty("Mail_Max_Weight", robots == 1 ? "2000" : "3000");
+            properties.setProperty("Last_Delivery_Time", String.valueOf(Math.max(1, mail / MAIL_PER_TICK)));
+            properties.setProperty("Robots", String.valueOf(robots));
+            return properties;
+        }
+    }
+
+    /**
+     * measurements of a scenario
+     */
+    private static class Result {
+        private final String dimension;
+        private final Scenario scenario;
+        private final boolean timedOut;
+        private long ticks;
+        private long wallNanos;
+        private long peakHeapBytes;
+        private long allocatedBytes;
+
+        private Result(String dimension, Scenario scenario, boolean timedOut) {
+            this.dimension = dimension;
+            this.scenario = scenario;
+            this.timedOut = timedOut;
+        }
+
+        private long nanosPerTick() {return ticks == 0 ? 0 : wallNanos / ticks;}
+    }
+}
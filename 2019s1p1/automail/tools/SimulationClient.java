@@ -0,0 +1,166 @@
+package tools;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * description: Sends a job to a SimulationServer and prints its reply. A run
+ *              takes the same arguments as automail.Simulation and prints
+ *              the same trace to stdout and failures to stderr, exiting with
+ *              1 when a run fails, so the test/test.sh steps work with the
+ *              client in place of the simulation:
+ *                java tools.SimulationClient x testResource/automail_1.properties > test/out_1.txt
+ *              --seeds runs the properties once per seed, and --result
+ *              prints only the result line of each run instead of its trace.
+ *
+ * usage: java tools.SimulationClient [--port n | --socket path] [--seeds first-last] [--result]
+ *                                    [seed | placeholder properties file, default ./automail.properties]
+ *        java tools.SimulationClient [--port n | --socket path] --cancel job-id
+ *        java tools.SimulationClient [--port n | --socket path] --stats
+ **/
+
+public class SimulationClient {
+    /**
+     * trace lines between checks that stdout is still open
+     */
+    private static final int CHECK_STDOUT_EVERY = 4096;
+
+    public static void main(String[] args) throws IOException {
+        int port = SimulationServer.DEFAULT_PORT;
+        String socket = null;
+        String seeds = null;
+        boolean result = false;
+        String request = null;
+        String filename = "./automail.properties";
+        String seed = null;
+        int positional = 0;
+        String[] positionals = new String[2];
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--socket":
+                    socket = args[++i];
+                    break;
+                case "--seeds":
+                    seeds = args[++i];
+                    break;
+                case "--result":
+                    result = true;
+                    break;
+                case "--cancel":
+                    request = "CANCEL " + Integer.parseInt(args[++i]);
+                    break;
+                case "--stats":
+                    request = "STATS";
+                    break;
+                default:
+                    if (positional == positionals.length) {
+                        System.err.println("Unexpected argument " + args[i]);
+                        System.exit(2);
+                    }
+                    positionals[positional++] = args[i];
+            }
+        }
+        /* as automail.Simulation: a placeholder and the properties file, or a seed */
+        if (positional == 2) {
+            filename = positionals[1];
+        } else if (positional == 1) {
+            seed = String.valueOf(Integer.parseInt(positionals[0]));
+        }
+
+        String properties = "";
+        if (request == null) {
+            String first = "-";
+            String last = "-";
+            if (seeds != null) {
+                String[] range = seeds.split("-", 2);
+                first = String.valueOf(Integer.parseInt(range[0]));
+                last = String.valueOf(Integer.parseInt(range.length == 2 ? range[1] : range[0]));
+            } else if (seed != null) {
+                first = seed;
+                last = seed;
+            }
+            request = String.format("RUN %s %s %s", first, last, result ? "result" : "trace");
+            properties = new String(Files.readAllBytes(Paths.get(filename)), StandardCharsets.ISO_8859_1);
+        }
+
+        try (SocketChannel channel = socket == null ?
+                SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port)) :
+                SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            PrintStream out = new PrintStream(Channels.newOutputStream(channel), false, StandardCharsets.UTF_8);
+            out.println(request);
+            out.print(properties);
+            out.flush();
+            channel.shutdownOutput();
+            System.exit(printReply(new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8)), result));
+        }
+    }
+
+    /**
+     * @param in: the reply of the server
+     * @param result: print the result lines of the runs
+     * @return the exit code, 1 if a run failed or the job was not run
+     */
+    private static int printReply(BufferedReader in, boolean result) throws IOException {
+        /* not System.out, which hides a closed stdout */
+        PrintStream stdout = new PrintStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        int exitCode = 0;
+        boolean job = false;
+        long traceLines = 0;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            if (line.startsWith("T ")) {
+                stdout.println(line.substring(2));
+                /* stdout closed, as when piped into head, closing the connection cancels the job */
+                if (++traceLines % CHECK_STDOUT_EVERY == 0 && stdout.checkError()) {
+                    return 1;
+                }
+            } else if (line.startsWith("X ")) {
+                stdout.flush();
+                System.err.println(line.substring(2));
+            } else if (line.startsWith("R ")) {
+                /* R seed status queue-ms run-ms result, a dispatch the planner could not make ends with 0 as well */
+                String[] words = line.split(" ", 4);
+                if (!words[2].equals("COMPLETED") && !words[2].equals("INVALID_DISPATCH")) {
+                    exitCode = 1;
+                }
+                if (result) {
+                    stdout.println(line.substring(2));
+                }
+            } else if (line.startsWith("JOB ")) {
+                job = true;
+            } else if (line.equals("DONE")) {
+                job = false;
+            } else if (line.equals("CANCELLED") || line.startsWith("REJECTED ")) {
+                stdout.flush();
+                System.err.println(line);
+                exitCode = 1;
+                job = false;
+            } else {
+                stdout.println(line);
+            }
+        }
+        stdout.flush();
+        if (job) {
+            System.err.println("Connection closed before the job was done");
+            exitCode = 1;
+        }
+        return exitCode;
+    }
+}
@@ -0,0 +1,604 @@
+package tools;
+
+import telemetry.Histogram;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * description: A long lived JVM which runs simulation jobs sent over a
+ *              loopback port or a Unix domain socket, so a run of a few
+ *              milliseconds does not pay for starting and warming a JVM. A
+ *              job is a properties file, a range of seeds and whether the
+ *              trace is wanted, and is run on one of a fixed number of
+ *              workers. Like GoldenSuite, each worker loads its own copy of
+ *              the simulation classes, since the simulation keeps its state in
+ *              static fields, and keeps it, so it stays warm between jobs.
+ *              Jobs wait in a bounded queue and are rejected when it is full.
+ *              A job can be cancelled while queued or running; a running job
+ *              ends at the end of its current tick. A job is also cancelled
+ *              when its client goes away while its trace is streamed. The
+ *              wait in the queue and the run time of every job are recorded.
+ *              Jobs share the mail generated for a seed through the
+ *              WorkloadCache, unless they set Workload_Cache themselves.
+ *              With a ResultCache, completed runs are added to it and a job
+ *              without a trace answers a run found in it at once.
+ *              Any local user can send jobs, so a job which sets a property
+ *              that makes the run write a file or open a port is rejected.
+ *
+ *              One request per connection, all lines in UTF-8. The client
+ *              sends a command line, then for RUN the properties, then
+ *              closes its side:
+ *                RUN first-seed last-seed trace|result   ("-" seeds for the Seed property)
+ *                CANCEL job-id
+ *                STATS
+ *              The reply to RUN is "JOB id" or "REJECTED reason", then for
+ *              each seed its trace lines prefixed by "T " when the trace is
+ *              wanted, "R seed status queue-ms run-ms result" and for a
+ *              failure its stack trace lines prefixed by "X ", then "DONE" or
+ *              "CANCELLED". The connection is closed after the reply.
+ *
+ * usage: java tools.SimulationServer [--port n, default 7440 | --socket path] [--workers n, default cores]
+ *                                    [--queue n, default 64] [--cache result cache file]
+ **/
+
+public class SimulationServer {
+    public static final int DEFAULT_PORT = 7440;
+
+    /**
+     * properties which make a run write files or open a port, a job may only leave them empty
+     */
+    private static final List<String> REJECTED_PROPERTIES = List.of("Tick_Profile_File", "Tick_Series_File",
+            "Delivery_Record_File", "Shared_Telemetry_File", "Decision_Corpus_File", "Workload_Cache_Dir",
+            "Metrics_Port");
+
+    /**
+     * a worker's copy of the simulation classes and the methods called on it
+     */
+    private static class SimulationCopy {
+        private final Method setOut;
+        private final Method run;
+        private final Method setCancelled;
+        /**
+         * the job running on the copy, null between jobs, changed under the copy's lock
+         */
+        private Job job = null;
+
+        private SimulationCopy(ClassLoader loader, ConcurrentMap<String, int[]> workloads)
+                throws ReflectiveOperationException {
+            setOut = Class.forName("automail.Trace", true, loader).getMethod("setOut", PrintStream.class);
+            run = Class.forName("automail.Simulation", true, loader).getMethod("run", Properties.class);
+            setCancelled = Class.forName("automail.ProgressWatchdog", true, loader)
+                    .getMethod("setCancelled", boolean.class);
+            Class.forName("automail.WorkloadCache", true, loader).getMethod("share", ConcurrentMap.class)
+                    .invoke(null, workloads);
+        }
+
+        /**
+         * Start running the job on the copy
+         * @param job: the job, cancelled at once if it has been cancelled already
+         */
+        private synchronized void start(Job job) {
+            this.job = job;
+            setCancelled(job.cancelled);
+        }
+
+        /**
+         * Stop the job running on the copy, a job which already ended is not
+         * confused with the one after it
+         * @param job: the job to cancel
+         */
+        private synchronized void cancel(Job job) {
+            if (this.job == job) {
+                setCancelled(true);
+            }
+        }
+
+        /**
+         * The job ended, the copy is ready for the next one
+         */
+        private synchronized void finish() {
+            job = null;
+            setCancelled(false);
+        }
+
+        private void setCancelled(boolean cancelled) {
+            try {
+                setCancelled.invoke(null, cancelled);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can not cancel the simulation", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the trace of a job to its client, each line prefixed by "T ". A
+     * failed write means the client went away, which cancels the job.
+     */
+    private static class TraceStream extends OutputStream {
+        private static final byte[] LINE_PREFIX = {'T', ' '};
+
+        private final Job job;
+        private boolean lineStart = true;
+
+        private TraceStream(Job job) {this.job = job;}
+
+        @Override
+        public void write(int b) {write(new byte[]{(byte) b}, 0, 1);}
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) {
+            if (job.cancelled) {
+                return;
+            }
+            try {
+                int end = offset + count;
+                while (offset < end) {
+                    if (lineStart) {
+                        job.sink.write(LINE_PREFIX);
+                    }
+                    int lineEnd = offset;
+                    while (lineEnd < end && bytes[lineEnd] != '\n') {
+                        lineEnd++;
+                    }
+                    lineStart = lineEnd < end;
+                    if (lineStart) {
+                        lineEnd++;
+                    }
+                    job.sink.write(bytes, offset, lineEnd - offset);
+                    offset = lineEnd;
+                }
+            } catch (IOException e) {
+                job.cancel();
+            }
+        }
+    }
+
+    private class Job implements Runnable {
+        private final int id;
+        private final Properties properties;
+        /**
+         * null to use the Seed property
+         */
+        private final Integer firstSeed;
+        private final Integer lastSeed;
+        private final boolean trace;
+        /**
+         * to the client, the trace is written to the sink under it
+         */
+        private final PrintStream out;
+        private final OutputStream sink;
+        private final long submitted = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled = false;
+        private volatile boolean started = false;
+        /**
+         * the copy running the job, null until it starts
+         */
+        private volatile SimulationCopy running = null;
+
+        private Job(int id, Properties properties, Integer firstSeed, Integer lastSeed, boolean trace,
+                    PrintStream out, OutputStream sink) {
+            this.id = id;
+            this.properties = properties;
+            this.firstSeed = firstSeed;
+            this.lastSeed = lastSeed;
+            this.trace = trace;
+            this.out = out;
+            this.sink = sink;
+        }
+
+        /**
+         * Cancel the job, from any thread
+         */
+        private void cancel() {
+            cancelled = true;
+            if (executor.remove(this)) {
+                stats.finished(this, 0, 0);
+                done.countDown();
+                return;
+            }
+            SimulationCopy copy = running;
+            if (copy != null) {
+                copy.cancel(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            long queueNanos = System.nanoTime() - submitted;
+            long runStart = System.nanoTime();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                SimulationCopy copy = copies.get();
+                running = copy;
+                /* started after running is set, so a cancel either reaches the copy or is seen here */
+                copy.start(this);
+                int first = firstSeed == null ? 0 : firstSeed;
+                int last = lastSeed == null ? 0 : lastSeed;
+                for (int seed = first; seed <= last && !cancelled; seed++) {
+                    Properties runProperties = new Properties();
+                    runProperties.putAll(properties);
+                    if (firstSeed != null) {
+                        runProperties.setProperty("Seed", String.valueOf(seed));
+                    }
+                    if (!runProperties.containsKey("Workload_Cache")) {
+                        runProperties.setProperty("Workload_Cache", "true");
+                    }
+                    runOnce(copy, firstSeed == null ? runProperties.getProperty("Seed", "-") : String.valueOf(seed),
+                            runProperties, queueNanos);
+                }
+            } catch (ReflectiveOperationException e) {
+                out.println("X can not load the simulation: " + e);
+            } finally {
+                SimulationCopy copy = running;
+                if (copy != null) {
+                    copy.finish();
+                }
+                running = null;
+                stats.finished(this, queueNanos, System.nanoTime() - runStart);
+                done.countDown();
+            }
+        }
+
+        private void runOnce(SimulationCopy copy, String seed, Properties runProperties, long queueNanos)
+                throws ReflectiveOperationException {
+            String key = cache == null ? null : cache.keyOf(runProperties);
+            if (!trace && key != null) {
+                ResultCache.Entry entry = cachedEntry(key);
+                if (entry != null) {
+                    out.printf("R %s %s %.3f %.3f %s (cached)%n", seed, entry.getStatus(), queueNanos / 1e6, 0.0,
+                            entry);
+                    out.flush();
+                    return;
+                }
+            }
+            PrintStream traceOut = new PrintStream(trace ? new TraceStream(this) : OutputStream.nullOutputStream());
+            long start = System.nanoTime();
+            String status;
+            String result;
+            Throwable failure;
+            copy.setOut.invoke(null, traceOut);
+            try {
+                Object runResult = copy.run.invoke(null, runProperties);
+                /* a RunResult of the worker's copy of the simulation */
+                status = String.valueOf(runResult.getClass().getMethod("getStatus").invoke(runResult));
+                result = String.valueOf(runResult);
+                failure = (Throwable) runResult.getClass().getMethod("getFailure").invoke(runResult);
+                if (key != null && status.equals("COMPLETED")) {
+                    cacheEntry(key, new ResultCache.Entry(status,
+                            (Integer) runResult.getClass().getMethod("getTime").invoke(runResult),
+                            (Integer) runResult.getClass().getMethod("getDelivered").invoke(runResult),
+                            (Double) runResult.getClass().getMethod("getScore").invoke(runResult),
+                            System.nanoTime() - start));
+                }
+            } catch (InvocationTargetException e) {
+                status = "FAILED";
+                result = String.valueOf(e.getCause());
+                failure = e.getCause();
+            } finally {
+                copy.setOut.invoke(null, System.out);
+            }
+            traceOut.flush();
+            out.printf("R %s %s %.3f %.3f %s%n", seed, status, queueNanos / 1e6, (System.nanoTime() - start) / 1e6,
+                    result);
+            if (failure != null && !(failure instanceof CancellationException)) {
+                StringWriter stackTrace = new StringWriter();
+                failure.printStackTrace(new PrintWriter(stackTrace));
+                for (String line: stackTrace.toString().split("\\R")) {
+                    out.println("X " + line);
+                }
+            }
+            out.flush();
+            if (out.checkError()) {
+                cancelled = true;
+            }
+        }
+
+        /**
+         * @return the cached entry, null on a miss or when the cache can not be read
+         */
+        private ResultCache.Entry cachedEntry(String key) {
+            try {
+                return cache.get(key);
+            } catch (IOException e) {
+                System.err.println("Result cache can not be read: " + e);
+                return null;
+            }
+        }
+
+        private void cacheEntry(String key, ResultCache.Entry entry) {
+            try {
+                cache.put(key, entry);
+            } catch (IOException e) {
+                System.err.println("Result cache can not be written: " + e);
+            }
+        }
+
+        private String describe() {
+            return String.format("job %d %s seeds %s-%s %s", id, !started ? "queued" : cancelled ? "cancelling" :
+                    "running", firstSeed == null ? "-" : firstSeed, lastSeed == null ? "-" : lastSeed,
+                    trace ? "trace" : "result");
+        }
+    }
+
+    /**
+     * counts of jobs and the time they wait and run, updated under its lock
+     */
+    private static class Stats {
+        private long submitted = 0;
+        private long rejected = 0;
+        private long finished = 0;
+        private long cancelled = 0;
+        private final Histogram queueMicros = new Histogram();
+        private final Histogram runMicros = new Histogram();
+
+        private synchronized void submitted() {submitted++;}
+
+        private synchronized void rejected() {rejected++;}
+
+        private synchronized void finished(Job job, long queueNanos, long runNanos) {
+            finished++;
+            if (job.cancelled) {
+                cancelled++;
+            }
+            if (job.started) {
+                queueMicros.record(queueNanos / 1000);
+                runMicros.record(runNanos / 1000);
+            }
+        }
+
+        private synchronized void write(PrintStream out) {
+            out.printf("jobs submitted %d rejected %d finished %d cancelled %d%n", submitted, rejected, finished,
+                    cancelled);
+            write(out, "queue wait", queueMicros);
+            write(out, "run time", runMicros);
+        }
+
+        private static void write(PrintStream out, String name, Histogram micros) {
+            out.printf("%s ms count %d p50 %.3f p90 %.3f p99 %.3f max %.3f%n", name, micros.getTotalCount(),
+                    micros.valueAtPercentile(50) / 1e3, micros.valueAtPercentile(90) / 1e3,
+                    micros.valueAtPercentile(99) / 1e3, micros.getMax() / 1e3);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextJobId = new AtomicInteger(1);
+    private final Stats stats = new Stats();
+
+    /**
+     * workloads shared by the copies of the simulation
+     */
+    private final ConcurrentMap<String, int[]> workloads = new ConcurrentHashMap<>();
+
+    /**
+     * results of completed runs, null for none
+     */
+    private final ResultCache cache;
+
+    /**
+     * each worker's copy of the simulation, loaded when it runs its first job
+     */
+    private final ThreadLocal<SimulationCopy> copies;
+
+    /**
+     * @param workers: jobs run at the same time
+     * @param queue: jobs waiting at most
+     * @param cache: results of completed runs, looked up for jobs without a trace, null for none
+     */
+    public SimulationServer(int workers, int queue, ResultCache cache) {
+        this.cache = cache;
+        URL[] classPath = {SimulationServer.class.getProtectionDomain().getCodeSource().getLocation()};
+        copies = ThreadLocal.withInitial(() -> {
+            try {
+                return new SimulationCopy(new URLClassLoader(classPath, ClassLoader.getPlatformClassLoader()),
+                        workloads);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Can not load the simulation", e);
+            }
+        });
+        AtomicInteger workerNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queue),
+                runnable -> new Thread(runnable, "worker-" + workerNumber.getAndIncrement()));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        Path socket = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int queue = 64;
+        Path cacheFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--socket":
+                    socket = Paths.get(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queue = Integer.parseInt(args[++i]);
+                    break;
+                case "--cache":
+                    cacheFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        ServerSocketChannel server;
+        if (socket == null) {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } else {
+            Files.deleteIfExists(socket);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Path boundSocket = socket;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(boundSocket);
+                } catch (IOException ignored) {
+                    /* the socket file is only left behind */
+                }
+            }));
+        }
+        System.out.printf("Serving on %s with %d workers and a queue of %d%n", server.getLocalAddress(), workers,
+                queue);
+        ResultCache cache = null;
+        if (cacheFile != null) {
+            URL classPath = SimulationServer.class.getProtectionDomain().getCodeSource().getLocation();
+            cache = new ResultCache(cacheFile, ResultCache.engineVersion(classPath), ResultCache.DEFAULT_LRU_ENTRIES);
+            System.out.println(cache.report());
+        }
+        new SimulationServer(workers, queue, cache).serve(server);
+    }
+
+    /**
+     * Answer connections until the channel is closed
+     * @param server: the bound channel
+     */
+    public void serve(ServerSocketChannel server) throws IOException {
+        while (server.isOpen()) {
+            SocketChannel connection = server.accept();
+            connections.execute(() -> handle(connection));
+        }
+    }
+
+    /**
+     * read one request and answer it
+     */
+    private void handle(SocketChannel connection) {
+        try (SocketChannel channel = connection) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            OutputStream sink = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            PrintStream out = new PrintStream(sink, false, StandardCharsets.UTF_8);
+            String command = in.readLine();
+            String[] words = command == null ? new String[0] : command.trim().split("\\s+");
+            if (words.length == 4 && words[0].equals("RUN")) {
+                StringBuilder properties = new StringBuilder();
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    properties.append(line).append('\n');
+                }
+                run(words, properties.toString(), out, sink);
+            } else if (words.length == 2 && words[0].equals("CANCEL")) {
+                Job job = jobs.get(Integer.parseInt(words[1]));
+                if (job == null) {
+                    out.println("UNKNOWN " + words[1]);
+                } else {
+                    job.cancel();
+                    out.println("CANCELLED " + words[1]);
+                }
+            } else if (words.length == 1 && words[0].equals("STATS")) {
+                stats.write(out);
+                if (cache != null) {
+                    out.println(cache.report());
+                }
+                out.printf("workers %d running %d queued %d%n", executor.getMaximumPoolSize(),
+                        executor.getActiveCount(), executor.getQueue().size());
+                for (Job job: jobs.values()) {
+                    out.println(job.describe());
+                }
+            } else {
+                out.println("ERROR unknown request: " + command);
+            }
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Connection failed: " + e);
+        }
+    }
+
+    /**
+     * queue a job, then stream its results until it is done
+     * @param words: RUN first-seed last-seed trace|result
+     * @param properties: text of the properties file
+     * @param out: to the client
+     * @param sink: under out, for the trace
+     */
+    private void run(String[] words, String properties, PrintStream out, OutputStream sink) throws IOException {
+        Properties jobProperties = new Properties();
+        jobProperties.load(new StringReader(properties));
+        for (String name: REJECTED_PROPERTIES) {
+            if (!jobProperties.getProperty(name, "").trim().isEmpty()) {
+                stats.rejected();
+                out.printf("REJECTED %s is not allowed on the server%n", name);
+                return;
+            }
+        }
+        boolean seeded = !words[1].equals("-");
+        Job job = new Job(nextJobId.getAndIncrement(), jobProperties,
+                seeded ? Integer.valueOf(words[1]) : null, seeded ? Integer.valueOf(words[2]) : null,
+                words[3].equals("trace"), out, sink);
+        jobs.put(job.id, job);
+        try {
+            out.println("JOB " + job.id);
+            out.flush();
+            try {
+                executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                stats.rejected();
+                out.printf("REJECTED queue full, %d jobs waiting%n", executor.getQueue().size());
+                return;
+            }
+            stats.submitted();
+            job.done.await();
+            out.println(job.cancelled ? "CANCELLED" : "DONE");
+        } catch (InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            jobs.remove(job.id);
+        }
+    }
+}
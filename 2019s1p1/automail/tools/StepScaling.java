@@ -0,0 +1,92 @@
+package tools;
+
+import automail.Building;
+import automail.Clock;
+import automail.Trace;
+import exceptions.InvalidDispatchException;
+import strategies.Automail;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * description: Measures the time Automail.step takes per tick when robots are
+ *              stepped on 1 to N threads, for fleets of 10k to 1M robots which
+ *              are kept delivering all the time.
+ *
+ * usage: java tools.StepScaling [fleet sizes, e.g. 10000,100000,1000000] [max threads] [ticks]
+ **/
+
+public class StepScaling {
+    /**
+     * floors of the building robots deliver in
+     */
+    private static final int FLOORS = 50;
+
+    /**
+     * ticks stepped before the time is measured
+     */
+    private static final int WARM_UP_TICKS = 20;
+
+    public static void main(String[] args) throws InvalidDispatchException {
+        int[] fleetSizes = args.length > 0 ?
+                Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray() :
+                new int[]{10_000, 100_000, 1_000_000};
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        Building.FLOORS = FLOORS;
+        /* the trace is still formatted, just not written anywhere */
+        Trace.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        System.out.printf("%10s %8s %14s %8s%n", "Robots", "Threads", "ns/tick", "Speedup");
+        for (int nRobots: fleetSizes) {
+            long sequentialNanos = 0;
+            for (int threads: threadCounts(maxThreads)) {
+                long nanosPerTick = measure(nRobots, threads, ticks);
+                if (threads == 1) {
+                    sequentialNanos = nanosPerTick;
+                }
+                System.out.printf("%10d %8d %14d %8.2f%n", nRobots, threads, nanosPerTick,
+                        (double) sequentialNanos / nanosPerTick);
+            }
+        }
+    }
+
+    /**
+     * @param maxThreads: the most threads to step robots on
+     * @return 1, 2, 4, ... up to and including maxThreads
+     */
+    private static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+        return threadCounts;
+    }
+
+    /**
+     * @param nRobots: robots in the building
+     * @param threads: threads to step robots on
+     * @param ticks: ticks to measure
+     * @return average wall time of Automail.step in nanoseconds
+     */
+    private static long measure(int nRobots, int threads, int ticks) throws InvalidDispatchException {
+        Automail automail = new Automail(new BusyMailPool(FLOORS), mailItem -> { }, nRobots, threads);
+        for (int tick = 0; tick < WARM_UP_TICKS; tick++) {
+            automail.step();
+            Clock.Tick();
+        }
+
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+            automail.step();
+            Clock.Tick();
+        }
+        return (System.nanoTime() - start) / ticks;
+    }
+}
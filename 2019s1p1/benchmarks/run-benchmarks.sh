@@ -0,0 +1,32 @@
+#!/bin/bash
+# Runs the JMH benchmarks with the gc profiler and compares the result with the
+# baseline recorded on this machine. Absolute ops/s only compare on the same
+# machine and JVM, so baselines are kept per host in baseline/ and not
+# committed. Record one before a change with --update-baseline, using the same
+# JMH options as the runs compared with it. Extra arguments are passed to JMH,
+# e.g. a benchmark regex.
+#
+# usage: ./run-benchmarks.sh [JMH options]
+#        ./run-benchmarks.sh --update-baseline [JMH options]
+#
+# run from the benchmarks directory after "mvn -B package" in 2019s1p1
+
+cd "$(dirname "$0")"
+
+RESULT=target/jmh-result.json
+BASELINE=baseline/$(hostname).json
+
+if [ "$1" == "--update-baseline" ]; then
+    shift
+    mkdir -p baseline
+    RESULT=$BASELINE
+elif [ ! -f "$BASELINE" ]; then
+    echo "No baseline for $(hostname), record one first with $0 --update-baseline" >&2
+    exit 2
+fi
+
+java -jar target/benchmarks.jar -prof gc -rf json -rff "$RESULT" "$@" || exit $?
+
+if [ "$RESULT" != "$BASELINE" ]; then
+    java -cp target/benchmarks.jar benchmarks.CompareBaseline "$BASELINE" "$RESULT"
+fi
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import automail.Building;
+import automail.Clock;
+import automail.Trace;
+import exceptions.InvalidDispatchException;
+import org.openjdk.jmh.annotations.*;
+import strategies.Automail;
+import tools.BusyMailPool;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: Automail.step for fleets of various sizes which are kept
+ *              delivering all the time, stepped sequentially or in parallel.
+ **/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutomailStepBenchmark {
+    /**
+     * floors of the building, trips are long enough for most robots to be moving
+     */
+    private static final int FLOORS = 50;
+
+    /**
+     * ticks until the fleet is in a steady state of delivering and returning
+     */
+    private static final int SETTLE_TICKS = 2 * FLOORS;
+
+    @Param({"10", "1000", "100000"})
+    private int fleetSize;
+
+    @Param({"1", "4"})
+    private int stepParallelism;
+
+    private Automail automail;
+
+    @Setup(Level.Trial)
+    public void startFleet() throws InvalidDispatchException {
+        Building.FLOORS = FLOORS;
+        Trace.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        automail = new Automail(new BusyMailPool(FLOORS), mailItem -> { }, fleetSize, stepParallelism);
+        for (int tick = 0; tick < SETTLE_TICKS; tick++) {
+            step();
+        }
+    }
+
+    @Benchmark
+    public void step() throws InvalidDispatchException {
+        automail.step();
+        Clock.Tick();
+    }
+}
@@ -0,0 +1,270 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * description: Compares a JMH JSON result with a baseline recorded on the same
+ *              machine. Prints the change of ops/s and of allocated bytes per
+ *              operation of every benchmark, and exits with 1 if any
+ *              throughput dropped by more than the tolerance and by more than
+ *              the error of both scores. A benchmark run with other JMH
+ *              settings or on another JVM than its baseline is reported and
+ *              not compared.
+ *
+ * usage: java -cp benchmarks.jar benchmarks.CompareBaseline baseline.json result.json [tolerance %]
+ **/
+
+public class CompareBaseline {
+    /**
+     * default drop of throughput in percent reported as a regression
+     */
+    private static final double DEFAULT_TOLERANCE = 10;
+
+    /**
+     * JMH settings a result must share with its baseline to be compared
+     */
+    private static final String[] SETTINGS = {"jdkVersion", "vmVersion", "jvmArgs", "mode", "threads", "forks",
+            "warmupIterations", "warmupTime", "measurementIterations", "measurementTime"};
+
+    /**
+     * the score of a benchmark and what it was measured with
+     */
+    private static class Score {
+        private final double opsPerSecond;
+        /**
+         * half the 99.9% confidence interval, NaN if JMH had too few iterations for one
+         */
+        private final double error;
+        private final double bytesPerOp;
+        private final String settings;
+
+        private Score(double opsPerSecond, double error, double bytesPerOp, String settings) {
+            this.opsPerSecond = opsPerSecond;
+            this.error = error;
+            this.bytesPerOp = bytesPerOp;
+            this.settings = settings;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareBaseline baseline.json result.json [tolerance %]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        Map<String, Score> baseline = scores(args[0]);
+        Map<String, Score> result = scores(args[1]);
+
+        int regressions = 0;
+        int incomparable = 0;
+        System.out.printf("%-90s %14s %14s %8s %12s%n", "Benchmark", "Baseline ops/s", "ops/s", "Change", "B/op change");
+        for (Map.Entry<String, Score> entry: result.entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.1f%n", entry.getKey(), "new", after.opsPerSecond);
+                continue;
+            }
+            if (!before.settings.equals(after.settings)) {
+                incomparable++;
+                System.out.printf("%-90s %14.1f %14.1f  not compared, settings differ:%n    baseline %s%n"
+                        + "    result   %s%n", entry.getKey(), before.opsPerSecond, after.opsPerSecond, before.settings,
+                        after.settings);
+                continue;
+            }
+            double change = 100 * (after.opsPerSecond - before.opsPerSecond) / before.opsPerSecond;
+            boolean regressed = change < -tolerance && beyondError(before, after);
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.1f %14.1f %+7.1f%% %+11.1f%%%s%n", entry.getKey(), before.opsPerSecond,
+                    after.opsPerSecond, change, before.bytesPerOp == 0 ? 0 :
+                            100 * (after.bytesPerOp - before.bytesPerOp) / before.bytesPerOp,
+                    regressed ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) beyond %.1f%%, %d benchmark(s) not compared%n", regressions, tolerance,
+                incomparable);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return true if the confidence intervals of the scores do not overlap, or
+     *         either score has no interval
+     */
+    private static boolean beyondError(Score before, Score after) {
+        if (Double.isNaN(before.error) || Double.isNaN(after.error)) {
+            return true;
+        }
+        return after.opsPerSecond + after.error < before.opsPerSecond - before.error;
+    }
+
+    /**
+     * @param fileName: a JMH JSON result
+     * @return the scores by benchmark and parameters
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> scores(String fileName) throws IOException {
+        List<Object> runs = (List<Object>) new Json(new String(Files.readAllBytes(Paths.get(fileName)))).value();
+        Map<String, Score> scores = new TreeMap<>();
+        for (Object item: runs) {
+            Map<String, Object> run = (Map<String, Object>) item;
+            String name = (String) run.get("benchmark");
+            Map<String, Object> params = (Map<String, Object>) run.get("params");
+            if (params != null) {
+                name += params.toString();
+            }
+            Map<String, Object> primary = (Map<String, Object>) run.get("primaryMetric");
+            double bytesPerOp = 0;
+            Map<String, Object> secondary = (Map<String, Object>) run.get("secondaryMetrics");
+            if (secondary != null && secondary.get("gc.alloc.rate.norm") != null) {
+                bytesPerOp = number(((Map<String, Object>) secondary.get("gc.alloc.rate.norm")).get("score"));
+            }
+            StringBuilder settings = new StringBuilder();
+            for (String setting: SETTINGS) {
+                Object value = run.get(setting);
+                /* counts are read as doubles */
+                if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+                    value = ((Double) value).longValue();
+                }
+                settings.append(settings.length() == 0 ? "" : " ").append(setting).append('=').append(value);
+            }
+            scores.put(name, new Score(number(primary.get("score")), number(primary.get("scoreError")), bytesPerOp,
+                    settings.toString()));
+        }
+        return scores;
+    }
+
+    /**
+     * @param value: a JSON number, or a string such as "NaN" which JMH writes for non-finite numbers
+     * @return its value, NaN if there is none
+     */
+    private static double number(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * just enough of a JSON reader for JMH results: objects, arrays, strings,
+     * numbers, booleans and null; "NaN" scores are strings in JMH output
+     */
+    private static class Json {
+        private final String text;
+        private int position = 0;
+
+        private Json(String text) {this.text = text;}
+
+        private Object value() {
+            skipSpaces();
+            char next = text.charAt(position);
+            switch (next) {
+                case '{':
+                    return object();
+                case '[':
+                    return array();
+                case '"':
+                    return string();
+                case 't':
+                    position += 4;
+                    return true;
+                case 'f':
+                    position += 5;
+                    return false;
+                case 'n':
+                    position += 4;
+                    return null;
+                default:
+                    return number();
+            }
+        }
+
+        private Map<String, Object> object() {
+            Map<String, Object> object = new LinkedHashMap<>();
+            position++;
+            skipSpaces();
+            if (text.charAt(position) == '}') {
+                position++;
+                return object;
+            }
+            while (true) {
+                skipSpaces();
+                String key = string();
+                skipSpaces();
+                position++; // ':'
+                object.put(key, value());
+                skipSpaces();
+                if (text.charAt(position++) == '}') {
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> array() {
+            List<Object> array = new ArrayList<>();
+            position++;
+            skipSpaces();
+            if (text.charAt(position) == ']') {
+                position++;
+                return array;
+            }
+            while (true) {
+                array.add(value());
+                skipSpaces();
+                if (text.charAt(position++) == ']') {
+                    return array;
+                }
+            }
+        }
+
+        private String string() {
+            StringBuilder string = new StringBuilder();
+            position++;
+            while (text.charAt(position) != '"') {
+                char c = text.charAt(position++);
+                if (c == '\\') {
+                    c = text.charAt(position++);
+                    if (c == 'u') {
+                        c = (char) Integer.parseInt(text.substring(position, position + 4), 16);
+                        position += 4;
+                    } else if (c == 'n') {
+                        c = '\n';
+                    } else if (c == 't') {
+                        c = '\t';
+                    }
+                }
+                string.append(c);
+            }
+            position++;
+            return string.toString();
+        }
+
+        private Double number() {
+            int start = position;
+            while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                position++;
+            }
+            return Double.parseDouble(text.substring(start, position));
+        }
+
+        private void skipSpaces() {
+            while (Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
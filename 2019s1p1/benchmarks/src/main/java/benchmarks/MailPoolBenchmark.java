@@ -0,0 +1,131 @@
+package benchmarks;
+
+import automail.*;
+import exceptions.InvalidDispatchException;
+import org.openjdk.jmh.annotations.*;
+import strategies.MailPool;
+import strategies.SelectMailItemToDeliverPlan;
+import strategies.SelectRobotToDeliverPlan;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: MailPool.addToPool and MailPool.step at various pool depths.
+ *              The pools step consumes are refilled between invocations, which
+ *              -prof gc counts into the allocation of step, the refill alone is
+ *              what addToPoolUntilDepth allocates.
+ **/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailPoolBenchmark {
+    /**
+     * robots waiting at the mail pool when it steps
+     */
+    private static final int WAITING_ROBOTS = 3;
+
+    /**
+     * pools stepped per invocation, so their setup is paid for once per this many steps
+     */
+    private static final int POOLS_PER_INVOCATION = 16;
+
+    @Param({"10", "100", "1000"})
+    private int poolDepth;
+
+    /**
+     * mail items in the pool
+     */
+    private List<MailItem> mailItems;
+
+    /**
+     * the waiting robots of each pool, created once as every robot created stays in the robot id map
+     */
+    private Robot[][] waitingRobots;
+
+    /**
+     * pools filled to the depth, each stepped once per invocation
+     */
+    private MailPool[] filledPools;
+
+    @Setup(Level.Trial)
+    public void generateMail() {
+        Building.FLOORS = Workloads.FLOORS;
+        Trace.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        mailItems = Workloads.mailItems(poolDepth, ITeamState.TRIPLE_MAX_WEIGHT, 30006);
+        waitingRobots = new Robot[POOLS_PER_INVOCATION][WAITING_ROBOTS];
+        for (Robot[] robots: waitingRobots) {
+            for (int i = 0; i < WAITING_ROBOTS; i++) {
+                /* the robots never step, so never register back at a pool themselves */
+                robots[i] = RobotFactory.getInstance().createRobot(null, mailItem -> { });
+            }
+        }
+        filledPools = new MailPool[POOLS_PER_INVOCATION];
+    }
+
+    /**
+     * fresh pools filled to the depth with the robots unloaded and waiting, as step changes both
+     */
+    @Setup(Level.Invocation)
+    public void fillPools() {
+        for (int p = 0; p < POOLS_PER_INVOCATION; p++) {
+            filledPools[p] = newPool();
+            for (MailItem mailItem: mailItems) {
+                filledPools[p].addToPool(mailItem);
+            }
+            for (Robot robot: waitingRobots[p]) {
+                unload(robot);
+                filledPools[p].registerWaiting(robot);
+            }
+        }
+    }
+
+    /**
+     * @return time to add poolDepth items to an empty pool, the pool is re-sorted on every add
+     */
+    @Benchmark
+    public MailPool addToPoolUntilDepth() {
+        MailPool mailPool = newPool();
+        for (MailItem mailItem: mailItems) {
+            mailPool.addToPool(mailItem);
+        }
+        return mailPool;
+    }
+
+    /**
+     * @return IRobots dispatched by stepping each pool of the depth with robots waiting once
+     */
+    @Benchmark
+    @OperationsPerInvocation(POOLS_PER_INVOCATION)
+    public int step() throws InvalidDispatchException {
+        int dispatched = 0;
+        for (MailPool filledPool: filledPools) {
+            dispatched += filledPool.step().size();
+        }
+        return dispatched;
+    }
+
+    /**
+     * empty a robot's hand and tube and break up its team, as if it returned from delivering
+     */
+    private static void unload(Robot robot) {
+        robot.clearDeliveryItem();
+        if (robot.hasNextMailItem()) {
+            robot.loadNextMailItem();
+            robot.clearDeliveryItem();
+        }
+        if (robot.getTeamState() != TeamState.SINGLE) {
+            robot.changeTeamState(TeamState.SINGLE);
+        }
+    }
+
+    private static MailPool newPool() {
+        return new MailPool(new SelectMailItemToDeliverPlan(), new SelectRobotToDeliverPlan());
+    }
+}
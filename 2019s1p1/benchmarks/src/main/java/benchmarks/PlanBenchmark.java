@@ -0,0 +1,45 @@
+package benchmarks;
+
+import automail.MailItem;
+import org.openjdk.jmh.annotations.*;
+import strategies.SelectMailItemToDeliverPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: SelectMailItemToDeliverPlan.generateDeliverMailItemPlan on
+ *              pools of various depths.
+ **/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    private int poolDepth;
+
+    @Param({"2000", "3000"})
+    private int maxWeight;
+
+    private final SelectMailItemToDeliverPlan planner = new SelectMailItemToDeliverPlan();
+
+    /**
+     * unloaded mail items in mail pool order
+     */
+    private List<MailItem> unloadedMailItems;
+
+    @Setup(Level.Trial)
+    public void generateMail() {
+        unloadedMailItems = Workloads.inPoolOrder(Workloads.mailItems(poolDepth, maxWeight, 30006));
+    }
+
+    @Benchmark
+    public ArrayList<MailItem> generateDeliverMailItemPlan() {
+        return planner.generateDeliverMailItemPlan(unloadedMailItems);
+    }
+}
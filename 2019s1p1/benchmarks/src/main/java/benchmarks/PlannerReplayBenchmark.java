@@ -0,0 +1,84 @@
+package benchmarks;
+
+import automail.MailItem;
+import automail.RunResult;
+import automail.Simulation;
+import automail.Trace;
+import org.openjdk.jmh.annotations.*;
+import strategies.ISelectMailItemToDeliverPlan;
+import telemetry.DecisionCorpusReader;
+import telemetry.DecisionCorpusReader.Decision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: A mail item planner deciding the decisions of a recorded
+ *              corpus, one decision per operation, in the order they were
+ *              recorded. The corpus is a file recorded with
+ *              Decision_Corpus_File, or is recorded from a test
+ *              configuration when the parameter names one.
+ **/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlannerReplayBenchmark {
+    /**
+     * a corpus file, or a configuration in testResource to record one from
+     */
+    @Param({"automail_6.properties"})
+    private String corpus;
+
+    @Param({"strategies.SelectMailItemToDeliverPlan"})
+    private String planner;
+
+    private ISelectMailItemToDeliverPlan selectMailItemToDeliverPlan;
+    private Decision[] decisions;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void loadCorpus() throws IOException, ReflectiveOperationException {
+        boolean recorded = corpus.endsWith(".properties");
+        Path file;
+        if (recorded) {
+            file = Files.createTempFile("decisions", ".adc");
+            Properties properties = Simulation.loadProperties(Workloads.testResource(corpus));
+            properties.setProperty("Decision_Corpus_File", file.toString());
+            Trace.setOut(null);
+            RunResult result = Simulation.run(properties);
+            if (!result.isCompleted()) {
+                throw new IllegalStateException(result.toString(), result.getFailure());
+            }
+        } else {
+            file = Paths.get(corpus);
+        }
+        List<Decision> read = DecisionCorpusReader.readAll(file);
+        if (read.isEmpty()) {
+            throw new IllegalStateException(corpus + " holds no decisions");
+        }
+        decisions = read.toArray(new Decision[0]);
+        if (recorded) {
+            Files.deleteIfExists(file);
+        }
+        selectMailItemToDeliverPlan = (ISelectMailItemToDeliverPlan)
+                Class.forName(planner).getDeclaredConstructor().newInstance();
+    }
+
+    @Benchmark
+    public ArrayList<MailItem> generateDeliverMailItemPlan() {
+        Decision decision = decisions[next];
+        next = next + 1 == decisions.length ? 0 : next + 1;
+        /* the planner gets its own copy, as from MailPool */
+        return selectMailItemToDeliverPlan.generateDeliverMailItemPlan(new ArrayList<>(decision.getPool()));
+    }
+}
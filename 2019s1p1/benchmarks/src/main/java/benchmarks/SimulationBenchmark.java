@@ -0,0 +1,50 @@
+package benchmarks;
+
+import automail.RunResult;
+import automail.Simulation;
+import automail.Trace;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: Whole simulations of the test configurations, including
+ *              generating the mail and formatting the trace.
+ **/
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+    /**
+     * automail_7.properties is left out: its mail is too heavy for its single
+     * robot, so it fails with NOT_ENOUGH_ROBOTS before simulating
+     */
+    @Param({"automail_0.properties", "automail_1.properties", "automail_2.properties", "automail_3.properties",
+            "automail_4.properties", "automail_5.properties", "automail_6.properties"})
+    private String configuration;
+
+    private Properties properties;
+
+    @Setup(Level.Trial)
+    public void loadConfiguration() throws IOException {
+        properties = Simulation.loadProperties(Workloads.testResource(configuration));
+        Trace.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public RunResult run() {
+        RunResult result = Simulation.run(properties);
+        if (!result.isCompleted()) {
+            throw new IllegalStateException(result.toString(), result.getFailure());
+        }
+        return result;
+    }
+}
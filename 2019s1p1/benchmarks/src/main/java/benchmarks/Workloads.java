@@ -0,0 +1,77 @@
+package benchmarks;
+
+import automail.MailItem;
+import automail.PriorityMailItem;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * description: Mail items and files shared by the benchmarks. Mail items follow
+ *              the distributions of MailGenerator.
+ **/
+
+final class Workloads {
+    /**
+     * floors of the building in the benchmarks
+     */
+    static final int FLOORS = 14;
+
+    private Workloads() { }
+
+    /**
+     * @param count: number of mail items
+     * @param maxWeight: heaviest mail item
+     * @param seed: seed of the random numbers
+     * @return mail items in the order they arrive
+     */
+    static List<MailItem> mailItems(int count, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        List<MailItem> mailItems = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int destination = 1 + random.nextInt(FLOORS);
+            int arrival = 1 + random.nextInt(100);
+            int weight = (int) Math.min(maxWeight, 200 + Math.abs(random.nextGaussian()) * 1000);
+            if (random.nextInt(6) > 0) {
+                mailItems.add(new MailItem(destination, arrival, weight));
+            } else {
+                mailItems.add(new PriorityMailItem(destination, arrival, weight, 10 * (1 + random.nextInt(10))));
+            }
+        }
+        return mailItems;
+    }
+
+    /**
+     * @param mailItems: mail items
+     * @return the mail items in mail pool order: priority descending, then floor descending
+     */
+    static List<MailItem> inPoolOrder(List<MailItem> mailItems) {
+        List<MailItem> sorted = new ArrayList<>(mailItems);
+        sorted.sort(Comparator.comparingInt(Workloads::priority).thenComparingInt(MailItem::getDestinationFloor)
+                .reversed());
+        return sorted;
+    }
+
+    /**
+     * @param fileName: name of a file in testResource
+     * @return path of the file, from the project or the benchmarks directory
+     */
+    static String testResource(String fileName) {
+        String directory = System.getProperty("automail.testResource");
+        if (directory == null) {
+            directory = new File("testResource").isDirectory() ? "testResource" : "../testResource";
+        }
+        return new File(directory, fileName).getPath();
+    }
+
+    /**
+     * @param mailItem: a mail item
+     * @return its priority, 1 for normal mail as in MailPool
+     */
+    private static int priority(MailItem mailItem) {
+        return mailItem instanceof PriorityMailItem ? ((PriorityMailItem) mailItem).getPriorityLevel() : 1;
+    }
+}